@@ -1,4 +1,7 @@
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 /**
  * @author Brandon Reiley
@@ -15,70 +18,237 @@ public class AVLTree<K,V> implements AVLTreeI<K, V> {
 		K key;
 		V value;
 		Node<K,V> leftChild, rightChild, parent;
+		int height, size;
 
 		public Node (K key, V value) {
 			this.key = key;
 			this.value = value;
 			leftChild = rightChild = parent = null;
+			height = 1;
+			size = 1;
 		}
 	}
 
+	/**
+	 * @param comparator orders the keys, null to use their natural ordering
+	 */
+
 	private Node <K,V> root;
 	private int currentSize;
+	private int modCount;
+	private final Comparator<? super K> comparator;
 
 	/**
-	 * resets root and current size
+	 * creates an empty tree ordered by the keys' compareTo method
 	 */
 
 	public AVLTree() {
-		Node<K,V> root = null;
-		int currentSize = 0; 
+		this(null);
+	}
+
+	/**
+	 * creates an empty tree ordered by the given comparator, so keys do not have
+	 * to implement Comparable
+	 * @param comparator orders the keys, null to use their natural ordering
+	 */
+
+	public AVLTree(Comparator<? super K> comparator) {
+		this.comparator = comparator;
 	}
 
 	/**
-	 * adds new nodes to root of empty, if not calls add method to add root and node
+	 * @return the comparator ordering the keys, null if they use their natural ordering
+	 */
+
+	public Comparator<? super K> comparator() {
+		return comparator;
+	}
+
+	/**
+	 * compares two keys with the comparator, or with compareTo if there is none
+	 * @param a the first key
+	 * @param b the second key
+	 * @return negative, zero or positive as a is less than, equal to or greater than b
+	 */
+
+	private int compare (K a, K b) {
+		if (comparator == null)
+			return ((Comparable<K>) a).compareTo(b);
+		return comparator.compare(a, b);
+	}
+
+	/**
+	 * Builds a perfectly balanced tree from keys that are already in ascending
+	 * order in linear time, without any rotations. The keys are checked to be
+	 * sorted with one pass of n - 1 comparisons, then the middle key becomes the
+	 * root and each half is built the same way below it.
+	 * @param keys the keys, in strictly ascending order
+	 * @param values the values, values[i] goes with keys[i]
+	 * @return the new tree
+	 * @throws IllegalArgumentException if the arrays differ in length or the keys are not strictly ascending
+	 */
+
+	public static <K,V> AVLTree<K,V> fromSorted(K[] keys, V[] values) {
+		return fromSorted(keys, values, null);
+	}
+
+	/**
+	 * Same as fromSorted(keys, values), for keys in ascending order by a comparator.
+	 * @param keys the keys, in strictly ascending order by comparator
+	 * @param values the values, values[i] goes with keys[i]
+	 * @param comparator orders the keys, null to use their natural ordering
+	 * @return the new tree, which keeps using comparator
+	 * @throws IllegalArgumentException if the arrays differ in length or the keys are not strictly ascending
+	 */
+
+	public static <K,V> AVLTree<K,V> fromSorted(K[] keys, V[] values, Comparator<? super K> comparator) {
+		if (keys.length != values.length)
+			throw new IllegalArgumentException("keys and values differ in length");
+		AVLTree<K,V> tree = new AVLTree<K,V>(comparator);
+		for (int i = 1; i < keys.length; i++)
+			if (tree.compare(keys[i - 1], keys[i]) >= 0)
+				throw new IllegalArgumentException("keys are not strictly ascending at index " + i);
+		tree.root = tree.build(keys, values, 0, keys.length - 1, null);
+		tree.currentSize = keys.length;
+		return tree;
+	}
+
+	/**
+	 * builds a balanced subtree from a slice of sorted arrays
+	 * @param keys the sorted keys
+	 * @param values the values
+	 * @param lo first index of the slice
+	 * @param hi last index of the slice
+	 * @param parent the parent of the subtree's root
+	 * @return the root of the subtree, null for an empty slice
+	 */
+
+	private Node <K,V> build (Object[] keys, Object[] values, int lo, int hi, Node <K,V> parent) {
+		if (lo > hi)
+			return null;
+		int mid = (lo + hi) >>> 1;
+		Node <K,V> node = new Node <K,V> ((K) keys[mid], (V) values[mid]);
+		node.parent = parent;
+		node.leftChild = build(keys, values, lo, mid - 1, node);
+		node.rightChild = build(keys, values, mid + 1, hi, node);
+		update(node);
+		return node;
+	}
+
+	/**
+	 * Returns a new tree holding the keys of both trees, merging their in order
+	 * sequences in one pass and building the result with fromSorted, so it takes
+	 * time linear in the two sizes. Where both trees have a key, the value from
+	 * this tree is kept. Neither tree is changed. Both trees must order their keys
+	 * the same way, and the result uses this tree's comparator.
+	 * @param other the tree to merge with
+	 * @return the union of the two trees
+	 */
+
+	public AVLTree<K,V> union(AVLTree<K,V> other) {
+		Object[] keys = new Object[currentSize + other.currentSize];
+		Object[] values = new Object[keys.length];
+		Node <K,V> a = first();
+		Node <K,V> b = other.first();
+		int n = 0;
+		while (a != null || b != null) {
+			int cmp;
+			if (a == null)
+				cmp = 1;
+			else if (b == null)
+				cmp = -1;
+			else
+				cmp = compare(a.key, b.key);
+			Node <K,V> taken = (cmp <= 0) ? a : b;
+			keys[n] = taken.key;
+			values[n++] = taken.value;
+			if (cmp <= 0)
+				a = successor(a);
+			if (cmp >= 0)
+				b = other.successor(b);
+		}
+		AVLTree<K,V> tree = new AVLTree<K,V>(comparator);
+		tree.root = tree.build(keys, values, 0, n - 1, null);
+		tree.currentSize = n;
+		return tree;
+	}
+
+	/**
+	 * @return the node with the smallest key, null if the tree is empty
+	 */
+
+	private Node <K,V> first () {
+		Node <K,V> n = root;
+		if (n != null)
+			while (n.leftChild != null)
+				n = n.leftChild;
+		return n;
+	}
+
+	/**
+	 * walks down from the root comparing the key once per level to find where the new
+	 * node goes, links it in, then rebalances on the way back up. Duplicate keys are ignored.
 	 * @param key object being added to tree
 	 * @param value the value associated to the key
 	 */
 
 	public void add(K key, V value) {
-		Node <K,V> node = new Node <K,V> (key, value);
 		if (root == null) {
-			root = node;
+			root = new Node <K,V> (key, value);
 			currentSize++;
+			modCount++;
 			return;
 		}
-		add (root, node);
+		Node <K,V> parent = root;
+		while (true) {
+			int cmp = compare(key, parent.key);
+			if (cmp == 0)
+				return;
+			Node <K,V> next = (cmp < 0) ? parent.leftChild : parent.rightChild;
+			if (next == null) {
+				Node <K,V> node = new Node <K,V> (key, value);
+				node.parent = parent;
+				if (cmp < 0)
+					parent.leftChild = node;
+				else
+					parent.rightChild = node;
+				currentSize++;
+				modCount++;
+				rebalance(parent);
+				return;
+			}
+			parent = next;
+		}
 	}
 
 	/**
-	 * searches through tree to find where to add new node
-	 * @param parent parent of the node being added
-	 * @param newNode the new node being added
+	 * Removes the key and its value from the tree. A node with two children takes
+	 * the key and value of its in order successor, and the successor's node is
+	 * unlinked instead. The tree is then rebalanced from the unlinked node's parent up.
+	 * @param key the key to remove
+	 * @return true if the key was found and removed
 	 */
 
-	private void add (Node <K,V> parent, Node <K,V> newNode) {
-		if (((Comparable<K>)newNode.key).compareTo(parent.key) > 0) {
-			if (parent.rightChild == null) {
-				parent.rightChild = newNode;
-				newNode.parent = parent;
-				currentSize++;
-			}
-			else {
-				add (parent.rightChild, newNode);
-			}
+	public boolean remove(K key) {
+		Node <K,V> node = find(key);
+		if (node == null)
+			return false;
+		if (node.leftChild != null && node.rightChild != null) {
+			Node <K,V> successor = node.rightChild;
+			while (successor.leftChild != null)
+				successor = successor.leftChild;
+			node.key = successor.key;
+			node.value = successor.value;
+			node = successor;
 		}
-		else {
-			if (parent.leftChild == null) {
-				parent.leftChild = newNode;
-				newNode.parent = parent;
-				currentSize++;
-			}
-			else {
-				add (parent.leftChild, newNode);
-			}
-		}
-		rotate(newNode);
+		Node <K,V> child = (node.leftChild != null) ? node.leftChild : node.rightChild;
+		if (child != null)
+			child.parent = node.parent;
+		replaceChild(node.parent, node, child);
+		currentSize--;
+		modCount++;
+		rebalance(node.parent);
+		return true;
 	}
 
 	/**
@@ -88,7 +258,7 @@ public class AVLTree<K,V> implements AVLTreeI<K, V> {
 	 */
 
 	public boolean contains(K key) {
-		return getValue(key) != null;
+		return find(key) != null;
 	}
 	
 	/**
@@ -98,18 +268,241 @@ public class AVLTree<K,V> implements AVLTreeI<K, V> {
 	 */
 	
 	public V getValue(K key) {
-		return find (key, root);
+		Node <K,V> n = find(key);
+		if (n == null)
+			return null;
+		return n.value;
 	}
 	
-	private V find (K key, Node <K,V> n) {
-		if (n == null) 
+	/**
+	 * walks down from the root, comparing the key once per level. The loop is
+	 * written out once for natural ordering and once for a comparator, so each
+	 * copy makes the same kind of call at every step.
+	 * @param key the key to look for
+	 * @return the node holding the key, null if not found
+	 */
+
+	private Node <K,V> find (K key) {
+		Node <K,V> n = root;
+		if (comparator == null) {
+			Comparable<K> k = (Comparable<K>) key;
+			while (n != null) {
+				int cmp = k.compareTo(n.key);
+				if (cmp == 0)
+					return n;
+				n = (cmp < 0) ? n.leftChild : n.rightChild;
+			}
+			return null;
+		}
+		Comparator<? super K> c = comparator;
+		while (n != null) {
+			int cmp = c.compare(key, n.key);
+			if (cmp == 0)
+				return n;
+			n = (cmp < 0) ? n.leftChild : n.rightChild;
+		}
+		return null;
+	}
+
+	/**
+	 * counts the keys smaller than the given key, using the subtree sizes
+	 * @param key the key to rank, which does not have to be in the tree
+	 * @return the number of keys in the tree less than key
+	 */
+
+	public int rank(K key) {
+		int rank = 0;
+		Node <K,V> n = root;
+		while (n != null) {
+			int cmp = compare(key, n.key);
+			if (cmp <= 0) {
+				if (cmp == 0)
+					return rank + sizeOf(n.leftChild);
+				n = n.leftChild;
+			}
+			else {
+				rank += sizeOf(n.leftChild) + 1;
+				n = n.rightChild;
+			}
+		}
+		return rank;
+	}
+
+	/**
+	 * finds the key with the given rank, using the subtree sizes
+	 * @param i the rank, starting at 0 for the smallest key
+	 * @return the key with i smaller keys, null if i is out of range
+	 */
+
+	public K select(int i) {
+		if (i < 0 || i >= currentSize)
 			return null;
-		if (((Comparable<K>)key).compareTo(n.key) < 0)
-			return find (key, n.leftChild);
-		if (((Comparable<K>)key).compareTo(n.key) > 0)
-			return find (key, n.rightChild);
-		return (V) n.value;
-			
+		Node <K,V> n = root;
+		while (true) {
+			int left = sizeOf(n.leftChild);
+			if (i == left)
+				return n.key;
+			if (i < left)
+				n = n.leftChild;
+			else {
+				i -= left + 1;
+				n = n.rightChild;
+			}
+		}
+	}
+
+	/**
+	 * @param key the key to look for
+	 * @return the largest key less than or equal to key, null if there is none
+	 */
+
+	public K floor(K key) {
+		return keyOf(below(key, true));
+	}
+
+	/**
+	 * @param key the key to look for
+	 * @return the largest key strictly less than key, null if there is none
+	 */
+
+	public K lower(K key) {
+		return keyOf(below(key, false));
+	}
+
+	/**
+	 * @param key the key to look for
+	 * @return the smallest key greater than or equal to key, null if there is none
+	 */
+
+	public K ceiling(K key) {
+		return keyOf(above(key, true));
+	}
+
+	/**
+	 * @param key the key to look for
+	 * @return the smallest key strictly greater than key, null if there is none
+	 */
+
+	public K higher(K key) {
+		return keyOf(above(key, false));
+	}
+
+	/**
+	 * counts the keys from lo to hi, both included, in O(log n)
+	 * @param lo the lowest key to count
+	 * @param hi the highest key to count
+	 * @return the number of keys in the range
+	 */
+
+	public int countInRange(K lo, K hi) {
+		if (compare(lo, hi) > 0)
+			return 0;
+		int count = rank(hi) - rank(lo);
+		if (contains(hi))
+			count++;
+		return count;
+	}
+
+	/**
+	 * Returns an Iterator of the keys from lo to hi, both included, in ascending
+	 * order. It finds lo in O(log n) and then steps from node to node through the
+	 * parent pointers, so only the keys actually read are visited.
+	 * @param lo the lowest key to return
+	 * @param hi the highest key to return
+	 * @return iterator over the keys in the range
+	 */
+
+	public Iterator<K> range(K lo, K hi) {
+		return new IteratorHelper(above(lo, true), hi, false);
+	}
+
+	/**
+	 * @param n a node or null
+	 * @return the node's key, null for null
+	 */
+
+	private K keyOf (Node <K,V> n) {
+		return (n == null) ? null : n.key;
+	}
+
+	/**
+	 * @param key the key to look for
+	 * @param inclusive whether a node holding key itself counts
+	 * @return the node with the largest key below key, null if there is none
+	 */
+
+	private Node <K,V> below (K key, boolean inclusive) {
+		Node <K,V> best = null;
+		Node <K,V> n = root;
+		while (n != null) {
+			int cmp = compare(key, n.key);
+			if (cmp == 0 && inclusive)
+				return n;
+			if (cmp > 0) {
+				best = n;
+				n = n.rightChild;
+			}
+			else
+				n = n.leftChild;
+		}
+		return best;
+	}
+
+	/**
+	 * @param key the key to look for
+	 * @param inclusive whether a node holding key itself counts
+	 * @return the node with the smallest key above key, null if there is none
+	 */
+
+	private Node <K,V> above (K key, boolean inclusive) {
+		Node <K,V> best = null;
+		Node <K,V> n = root;
+		while (n != null) {
+			int cmp = compare(key, n.key);
+			if (cmp == 0 && inclusive)
+				return n;
+			if (cmp < 0) {
+				best = n;
+				n = n.leftChild;
+			}
+			else
+				n = n.rightChild;
+		}
+		return best;
+	}
+
+	/**
+	 * @param n a node
+	 * @return the node that comes after n in order, null if n is the last
+	 */
+
+	private Node <K,V> successor (Node <K,V> n) {
+		if (n.rightChild != null) {
+			n = n.rightChild;
+			while (n.leftChild != null)
+				n = n.leftChild;
+			return n;
+		}
+		while (n.parent != null && n == n.parent.rightChild)
+			n = n.parent;
+		return n.parent;
+	}
+
+	/**
+	 * @param n a node
+	 * @return the node that comes before n in order, null if n is the first
+	 */
+
+	private Node <K,V> predecessor (Node <K,V> n) {
+		if (n.leftChild != null) {
+			n = n.leftChild;
+			while (n.rightChild != null)
+				n = n.rightChild;
+			return n;
+		}
+		while (n.parent != null && n == n.parent.leftChild)
+			n = n.parent;
+		return n.parent;
 	}
 
 	/**
@@ -129,168 +522,209 @@ public class AVLTree<K,V> implements AVLTreeI<K, V> {
 	}
 
 	/**
-	 * @return height of tree by calling height method
+	 * reads the height stored in the root, which add and remove keep up to date,
+	 * so this is constant time
+	 * @return height of tree
 	 */
 
 	public int height() {
 		if (root == null)
 			return 0;
-		return height (root) - 1;
+		return root.height - 1;
+	}
+	
+	/**
+	 * @param node a node or null
+	 * @return the stored height of the node, 0 for null
+	 */
+
+	private int heightOf (Node<K,V> node) {
+		return (node == null) ? 0 : node.height;
 	}
 
 	/**
-	 * if left child and right child are null, no height, else checks both sides of tree and adds one
-	 * to find correct height of tree
-	 * @param node root node that we use to search tree
-	 * @return height of tree
+	 * @param node a node or null
+	 * @return the number of nodes in the node's subtree, 0 for null
 	 */
 
-	private int height (Node<K,V> node) {
-		if (node == null) //we are leaf node
-			return 0;
-		
-		int leftheight = height (node.leftChild) + 1;
-		int rightheight = height (node.rightChild) + 1;
-		
-		if (leftheight > rightheight)
-			return leftheight;
-		return rightheight;
+	private int sizeOf (Node<K,V> node) {
+		return (node == null) ? 0 : node.size;
 	}
-	
+
 	/**
-	 * checks to see what kind of rotation is needed
-	 * @param node node used search through tree
+	 * recomputes a node's height and subtree size from its children's stored values
+	 * @param node the node to update
 	 */
-	private void rotate (Node<K,V> node) {
-		if (node.parent.leftChild != null) {
-			if (node.parent.parent.leftChild != null) {
-				rightRotate (node.parent.parent);
-				return;
-			}
-			if (node.parent.parent.rightChild != null) {
-				rightLeftRotate (node.parent.parent);
-				return;
-			}
-		}
-		if (node.parent.rightChild != null) {
-			if (node.parent.parent.rightChild != null) {
-				leftRotate (node.parent.parent);
-				return;
+
+	private void update (Node<K,V> node) {
+		node.height = Math.max(heightOf(node.leftChild), heightOf(node.rightChild)) + 1;
+		node.size = sizeOf(node.leftChild) + sizeOf(node.rightChild) + 1;
+	}
+
+	/**
+	 * Walks from node up to the root, updating heights and sizes and rotating any
+	 * node whose children's heights differ by more than one. Once a subtree ends up
+	 * with the same height it had before no more rotations can be needed, so only
+	 * the sizes are fixed on the rest of the way up.
+	 * @param node the lowest node whose subtree changed
+	 */
+
+	private void rebalance (Node<K,V> node) {
+		while (node != null) {
+			int before = node.height;
+			update(node);
+			int balance = heightOf(node.leftChild) - heightOf(node.rightChild);
+			if (balance > 1) {
+				if (heightOf(node.leftChild.leftChild) < heightOf(node.leftChild.rightChild))
+					leftRotate(node.leftChild);
+				node = rightRotate(node);
 			}
-			if (node.parent.parent.leftChild != null) {
-				leftRightRotate (node.parent.parent);
-				return;
+			else if (balance < -1) {
+				if (heightOf(node.rightChild.rightChild) < heightOf(node.rightChild.leftChild))
+					rightRotate(node.rightChild);
+				node = leftRotate(node);
 			}
+			if (node.height == before)
+				break;
+			node = node.parent;
 		}
+		if (node == null)
+			return;
+		for (node = node.parent; node != null; node = node.parent)
+			node.size = sizeOf(node.leftChild) + sizeOf(node.rightChild) + 1;
+	}
+
+	/**
+	 * points the parent's link at oldChild to newChild instead, or the root if there is no parent
+	 * @param parent the parent of oldChild, null if oldChild is the root
+	 * @param oldChild the child being replaced
+	 * @param newChild the node taking its place
+	 */
 
+	private void replaceChild (Node<K,V> parent, Node<K,V> oldChild, Node<K,V> newChild) {
+		if (parent == null)
+			root = newChild;
+		else if (parent.leftChild == oldChild)
+			parent.leftChild = newChild;
+		else
+			parent.rightChild = newChild;
 	}
 	
 	/**
 	 * performs a left rotation on the AVL Tree
 	 * @param node node used to begin the rotation
+	 * @return the node that took node's place
 	 */
 	
-	private void leftRotate (Node <K,V> node) {
+	private Node <K,V> leftRotate (Node <K,V> node) {
 		Node <K,V> tmp = node.rightChild;
 		node.rightChild = tmp.leftChild;
-		
-		if (node.rightChild != null) {
+		if (node.rightChild != null)
 			node.rightChild.parent = node;
-		}
-		if (node.parent == null) { //we are root node
-			root = tmp;
-			tmp.parent = null;
-		}
-		else {
-			tmp.parent = node.parent;
-			if (node == node.parent.leftChild) 
-				tmp = tmp.parent.leftChild;
-			else {
-				tmp.parent.rightChild = tmp;
-			}
-			tmp.leftChild = node;
-			node.parent = tmp;
-		}
+		tmp.parent = node.parent;
+		replaceChild(node.parent, node, tmp);
+		tmp.leftChild = node;
+		node.parent = tmp;
+		update(node);
+		update(tmp);
+		return tmp;
 	}
 	
 	/**
 	 * performs a right rotation on the AVL Tree
 	 * @param node node used to begin the rotation
+	 * @return the node that took node's place
 	 */
 	
-	private void rightRotate (Node <K,V> node) {
+	private Node <K,V> rightRotate (Node <K,V> node) {
 		Node <K,V> tmp = node.leftChild;
 		node.leftChild = tmp.rightChild;
-		
-		if (node.leftChild != null) {
+		if (node.leftChild != null)
 			node.leftChild.parent = node;
-		}
-		if (node.parent == null) { //we are root node
-			root = tmp;
-			tmp.parent = null;
-		}
-		else {
-			tmp.parent = node.parent;
-			if (node == node.parent.rightChild) 
-				tmp = tmp.parent.rightChild;
-			else {
-				tmp.parent.leftChild = tmp;
-			}
-			tmp.rightChild = node;
-			node.parent = tmp;
-		}
+		tmp.parent = node.parent;
+		replaceChild(node.parent, node, tmp);
+		tmp.rightChild = node;
+		node.parent = tmp;
+		update(node);
+		update(tmp);
+		return tmp;
 	}
 	
 	/**
-	 * performs a left right rotation on the AVL Tree
-	 * @param node node used to begin the rotation
+	 * Iterates through the AVL Tree in order. Nothing is copied, each key is found
+	 * from the one before through the parent pointers.
+	 * @return iterator over the keys in ascending order
 	 */
 	
-	private void leftRightRotate (Node <K,V> node) {
-		leftRotate(node.leftChild);
-		rightRotate(node);
+	public Iterator<K> iterator() {
+		return new IteratorHelper(first(), null, false);
 	}
-	
+
 	/**
-	 * performs a right left rotation on the AVL Tree
-	 * @param node node used to begin the rotation
+	 * @param from the key to start at, which does not have to be in the tree
+	 * @return iterator over the keys greater than or equal to from, in ascending order
 	 */
-	
-	private void rightLeftRotate (Node <K,V> node) {
-		rightRotate(node.rightChild);
-		leftRotate(node);
+
+	public Iterator<K> iterator(K from) {
+		return new IteratorHelper(above(from, true), null, false);
 	}
-	
+
 	/**
-	 * Iterates through the AVL Tree
-	 * @return array array of keys in avl tree
+	 * @return iterator over the keys in descending order
 	 */
-	
-	public Iterator<K> iterator() {
-		return new IteratorHelper();
+
+	public Iterator<K> descendingIterator() {
+		Node <K,V> last = root;
+		if (last != null)
+			while (last.rightChild != null)
+				last = last.rightChild;
+		return new IteratorHelper(last, null, true);
+	}
+
+	/**
+	 * @param from the key to start at, which does not have to be in the tree
+	 * @return iterator over the keys less than or equal to from, in descending order
+	 */
+
+	public Iterator<K> descendingIterator(K from) {
+		return new IteratorHelper(below(from, true), null, true);
 	}
 	
-	class IteratorHelper <T> implements Iterator <T> {
-		T[] array;
-		int position, i;
+	/**
+	 * Steps from node to node in order, or in reverse order, using the parent
+	 * pointers, so it only needs the node it is on. Adding or removing keys while
+	 * iterating makes next throw ConcurrentModificationException.
+	 * @param next the next node to return
+	 * @param bound the last key to return, null for no bound
+	 * @param descending true to walk from larger keys to smaller keys
+	 * @param expectedModCount modCount when the iterator was created
+	 */
+
+	class IteratorHelper implements Iterator <K> {
+		Node <K,V> next;
+		K bound;
+		boolean descending;
+		int expectedModCount;
 		
-		public IteratorHelper() {
-			array = (T[]) new Object [currentSize];
-			int position = i = 0;
-			inOrder(root);
+		public IteratorHelper(Node <K,V> start, K bound, boolean descending) {
+			this.bound = bound;
+			this.descending = descending;
+			expectedModCount = modCount;
+			next = check(start);
 		}
-		
+
 		/**
-		 * adds nodes to array in inorder traversal
-		 * @param current root node that starts the inorder adding ot array
+		 * @param n the candidate next node
+		 * @return n, or null if it is past the bound
 		 */
-		
-		private void inOrder (Node <K,V> current) {
-			if (current != null) {
-				inOrder (current.leftChild);
-				array[i++] = (T) current.key;
-				inOrder(current.rightChild);
-			}
+
+		private Node <K,V> check (Node <K,V> n) {
+			if (n == null || bound == null)
+				return n;
+			int cmp = compare(bound, n.key);
+			if (descending ? cmp > 0 : cmp < 0)
+				return null;
+			return n;
 		}
 		
 		/**
@@ -298,17 +732,21 @@ public class AVLTree<K,V> implements AVLTreeI<K, V> {
 		 */
 		
 		public boolean hasNext() {
-			return position < array.length;
+			return next != null;
 		}
 		
 		/**
-		 * returns the next node in the array, null if at end
+		 * returns the key of the next node and steps to the one after it
 		 */
 		
-		public T next() {
+		public K next() {
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
 			if (!hasNext()) 
-				return null;
-			return array[position++];
+				throw new NoSuchElementException();
+			K key = next.key;
+			next = check(descending ? predecessor(next) : successor(next));
+			return key;
 		}
 		
 	}
@@ -318,28 +756,30 @@ public class AVLTree<K,V> implements AVLTreeI<K, V> {
 	 */
 	
 	public void print() {
-		print (root);
+		print (root, 0);
 	}
 	
 	/**
-	 * Recursively prints out the AVL Tree in in order
+	 * Recursively prints out the AVL Tree in in order, with one period per level
+	 * below the root
 	 * @param n root node
+	 * @param depth number of levels below the root n is at
 	 */
 	
-	private void print (Node <K,V> n) {
+	private void print (Node <K,V> n, int depth) {
 		if (n == null)
 			return;
 		if (n.leftChild != null) 
-			print (n.leftChild);
+			print (n.leftChild, depth + 1);
 		if (n == root) {
 			System.out.println("Key: " + n.key + " Value: " + n.value + " (root)");
 		}
 		else {
-			for(int i = 0; i < height(); i++)
+			for(int i = 0; i < depth; i++)
 				System.out.print(".");
 		System.out.println("Key: " + n.key + " Value: " + n.value);
 		}
 		if (n.rightChild != null)
-			print(n.rightChild);
+			print(n.rightChild, depth + 1);
 	}
 }
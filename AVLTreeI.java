@@ -17,6 +17,13 @@ public interface AVLTreeI<K, V> extends Iterable<K> {
 	 */
 	public void add(K key, V value);
 
+	/**
+	 * Removes the key and its value from the AVLTree, rebalancing as needed.
+	 * @param key the key to remove
+	 * @return true if the key was found and removed
+	 */
+	public boolean remove(K key);
+
 	/**
 	 * Tests whether the AVLTree contains the key
 	 * @param key the key to look for
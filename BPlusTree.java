@@ -0,0 +1,444 @@
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A B+ tree implementation of the AVLTreeI interface. Instead of one key per node,
+ * every node holds up to ORDER keys in a sorted array that is binary searched, so a
+ * lookup touches a handful of wide nodes rather than one small node per level. All
+ * values live in the leaves, which are linked to each other in key order, so an in
+ * order iteration just walks the leaf arrays one after another.
+ *
+ * Removal takes the key out of its leaf and drops nodes that become empty, but does
+ * not merge or borrow between half empty neighbors. Every leaf stays at the same
+ * depth, so lookups stay logarithmic.
+ *
+ * @param <K> The key for entries in the tree
+ * @param <V> The value for entries in the tree
+ */
+
+public class BPlusTree<K,V> implements AVLTreeI<K, V> {
+
+	/**
+	 * most keys a node can hold before it splits
+	 */
+
+	static final int ORDER = 64;
+
+	/**
+	 * a node of the tree, with its keys in ascending order in keys[0] to keys[count - 1]
+	 */
+
+	static class Node {
+		Object[] keys;
+		int count;
+
+		Node () {
+			keys = new Object[ORDER + 1];
+		}
+	}
+
+	/**
+	 * a leaf, values[i] goes with keys[i]. Leaves are linked in key order.
+	 */
+
+	static class Leaf extends Node {
+		Object[] values;
+		Leaf previous, next;
+
+		Leaf () {
+			values = new Object[ORDER + 1];
+		}
+	}
+
+	/**
+	 * an inner node. children[i] holds the keys less than keys[i], and
+	 * children[count] holds the keys greater than or equal to keys[count - 1].
+	 */
+
+	static class Inner extends Node {
+		Node[] children;
+
+		Inner () {
+			children = new Node[ORDER + 2];
+		}
+	}
+
+	/**
+	 * @param root the root node, a leaf while the tree is small
+	 * @param currentSize number of keys in the tree
+	 * @param levels number of levels below the root
+	 * @param modCount number of changes made, used to make iterators fail fast
+	 */
+
+	private Node root;
+	private int currentSize;
+	private int levels;
+	private int modCount;
+
+	/**
+	 * creates an empty tree with a single empty leaf as the root
+	 */
+
+	public BPlusTree() {
+		root = new Leaf();
+		currentSize = 0;
+		levels = 0;
+	}
+
+	/**
+	 * binary searches the keys of a node
+	 * @param node the node to search
+	 * @param key the key to look for
+	 * @return the index of the key, or -(insertion point) - 1 if it is not there
+	 */
+
+	private int search (Node node, K key) {
+		Comparable<K> k = (Comparable<K>) key;
+		int lo = 0;
+		int hi = node.count - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			int cmp = k.compareTo((K) node.keys[mid]);
+			if (cmp == 0)
+				return mid;
+			if (cmp < 0)
+				hi = mid - 1;
+			else
+				lo = mid + 1;
+		}
+		return -(lo + 1);
+	}
+
+	/**
+	 * @param inner an inner node
+	 * @param key the key to look for
+	 * @return the index of the child whose subtree would hold the key
+	 */
+
+	private int childIndex (Inner inner, K key) {
+		int i = search(inner, key);
+		return (i >= 0) ? i + 1 : -(i + 1);
+	}
+
+	/**
+	 * walks down to the leaf that would hold the key
+	 * @param key the key to look for
+	 * @return the leaf
+	 */
+
+	private Leaf findLeaf (K key) {
+		Node n = root;
+		while (n instanceof Inner) {
+			Inner inner = (Inner) n;
+			n = inner.children[childIndex(inner, key)];
+		}
+		return (Leaf) n;
+	}
+
+	/**
+	 * Adds the key to its leaf, splitting the leaf and then any parents that
+	 * overflow on the way back up. Duplicate keys are ignored.
+	 * @param key the key to add
+	 * @param value the value associated with the key
+	 */
+
+	public void add(K key, V value) {
+		Inner[] path = new Inner[levels];
+		int[] slots = new int[levels];
+		Node n = root;
+		for (int depth = 0; depth < levels; depth++) {
+			Inner inner = (Inner) n;
+			path[depth] = inner;
+			slots[depth] = childIndex(inner, key);
+			n = inner.children[slots[depth]];
+		}
+		Leaf leaf = (Leaf) n;
+		int i = search(leaf, key);
+		if (i >= 0)
+			return;
+		i = -(i + 1);
+		System.arraycopy(leaf.keys, i, leaf.keys, i + 1, leaf.count - i);
+		System.arraycopy(leaf.values, i, leaf.values, i + 1, leaf.count - i);
+		leaf.keys[i] = key;
+		leaf.values[i] = value;
+		leaf.count++;
+		currentSize++;
+		modCount++;
+		if (leaf.count <= ORDER)
+			return;
+
+		Leaf right = splitLeaf(leaf);
+		Object separator = right.keys[0];
+		Node newChild = right;
+		for (int depth = levels - 1; depth >= 0; depth--) {
+			Inner parent = path[depth];
+			int at = slots[depth];
+			System.arraycopy(parent.keys, at, parent.keys, at + 1, parent.count - at);
+			System.arraycopy(parent.children, at + 1, parent.children, at + 2, parent.count - at);
+			parent.keys[at] = separator;
+			parent.children[at + 1] = newChild;
+			parent.count++;
+			if (parent.count <= ORDER)
+				return;
+			Inner sibling = new Inner();
+			int half = parent.count / 2;
+			separator = parent.keys[half];
+			sibling.count = parent.count - half - 1;
+			System.arraycopy(parent.keys, half + 1, sibling.keys, 0, sibling.count);
+			System.arraycopy(parent.children, half + 1, sibling.children, 0, sibling.count + 1);
+			for (int j = half; j < parent.count; j++)
+				parent.keys[j] = null;
+			for (int j = half + 1; j <= parent.count; j++)
+				parent.children[j] = null;
+			parent.count = half;
+			newChild = sibling;
+		}
+		Inner newRoot = new Inner();
+		newRoot.keys[0] = separator;
+		newRoot.children[0] = root;
+		newRoot.children[1] = newChild;
+		newRoot.count = 1;
+		root = newRoot;
+		levels++;
+	}
+
+	/**
+	 * moves the upper half of a full leaf into a new leaf linked after it
+	 * @param leaf the leaf to split
+	 * @return the new leaf
+	 */
+
+	private Leaf splitLeaf (Leaf leaf) {
+		Leaf right = new Leaf();
+		int half = leaf.count / 2;
+		right.count = leaf.count - half;
+		System.arraycopy(leaf.keys, half, right.keys, 0, right.count);
+		System.arraycopy(leaf.values, half, right.values, 0, right.count);
+		for (int j = half; j < leaf.count; j++) {
+			leaf.keys[j] = null;
+			leaf.values[j] = null;
+		}
+		leaf.count = half;
+		right.next = leaf.next;
+		if (right.next != null)
+			right.next.previous = right;
+		right.previous = leaf;
+		leaf.next = right;
+		return right;
+	}
+
+	/**
+	 * Removes the key from its leaf. A leaf left empty is unlinked and taken out of
+	 * its parent, and so on up for parents left without children. The root is
+	 * replaced by its only child for as long as it has just one.
+	 * @param key the key to remove
+	 * @return true if the key was found and removed
+	 */
+
+	public boolean remove(K key) {
+		Inner[] path = new Inner[levels];
+		int[] slots = new int[levels];
+		Node n = root;
+		for (int depth = 0; depth < levels; depth++) {
+			Inner inner = (Inner) n;
+			path[depth] = inner;
+			slots[depth] = childIndex(inner, key);
+			n = inner.children[slots[depth]];
+		}
+		Leaf leaf = (Leaf) n;
+		int i = search(leaf, key);
+		if (i < 0)
+			return false;
+		System.arraycopy(leaf.keys, i + 1, leaf.keys, i, leaf.count - i - 1);
+		System.arraycopy(leaf.values, i + 1, leaf.values, i, leaf.count - i - 1);
+		leaf.count--;
+		leaf.keys[leaf.count] = null;
+		leaf.values[leaf.count] = null;
+		currentSize--;
+		modCount++;
+
+		if (leaf.count == 0 && levels > 0) {
+			if (leaf.previous != null)
+				leaf.previous.next = leaf.next;
+			if (leaf.next != null)
+				leaf.next.previous = leaf.previous;
+			for (int depth = levels - 1; depth >= 0; depth--) {
+				Inner parent = path[depth];
+				removeChild(parent, slots[depth]);
+				if (parent.count >= 0)
+					break;
+			}
+			if (((Inner) root).count < 0) {
+				root = new Leaf();
+				levels = 0;
+			}
+			while (levels > 0 && ((Inner) root).count == 0) {
+				root = ((Inner) root).children[0];
+				levels--;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * takes a child out of an inner node along with the separator next to it. An
+	 * inner node that loses its last child is left with a count of -1.
+	 * @param parent the inner node
+	 * @param at the index of the child to remove
+	 */
+
+	private void removeChild (Inner parent, int at) {
+		int key = (at == 0) ? 0 : at - 1;
+		if (parent.count > 0)
+			System.arraycopy(parent.keys, key + 1, parent.keys, key, parent.count - key - 1);
+		System.arraycopy(parent.children, at + 1, parent.children, at, parent.count - at);
+		parent.count--;
+		if (parent.count >= 0) {
+			parent.keys[parent.count] = null;
+			parent.children[parent.count + 1] = null;
+		}
+	}
+
+	/**
+	 * Tests whether the tree contains the key
+	 * @param key the key to look for
+	 * @return whether the key is found
+	 */
+
+	public boolean contains(K key) {
+		return search(findLeaf(key), key) >= 0;
+	}
+
+	/**
+	 * Get the value associated with a given key
+	 * @param key the key to get the value for
+	 * @return the current value, null if the key is not found
+	 */
+
+	public V getValue(K key) {
+		Leaf leaf = findLeaf(key);
+		int i = search(leaf, key);
+		if (i < 0)
+			return null;
+		return (V) leaf.values[i];
+	}
+
+	/**
+	 * @return current size of tree
+	 */
+
+	public int size() {
+		return currentSize;
+	}
+
+	/**
+	 * @return true if tree is empty, false if not
+	 */
+
+	public boolean isEmpty() {
+		return currentSize == 0;
+	}
+
+	/**
+	 * @return number of levels below the root, 0 when the root is a leaf
+	 */
+
+	public int height() {
+		return levels;
+	}
+
+	/**
+	 * Iterates through the keys in order by walking the linked leaves
+	 * @return iterator over the keys in ascending order
+	 */
+
+	public Iterator<K> iterator() {
+		Node n = root;
+		while (n instanceof Inner)
+			n = ((Inner) n).children[0];
+		return new IteratorHelper((Leaf) n);
+	}
+
+	/**
+	 * Walks the keys of each leaf, then follows the link to the next leaf. Adding
+	 * or removing keys while iterating makes next throw ConcurrentModificationException.
+	 * @param leaf the leaf being read
+	 * @param position the next index to read in leaf
+	 * @param expectedModCount modCount when the iterator was created
+	 */
+
+	class IteratorHelper implements Iterator<K> {
+		Leaf leaf;
+		int position;
+		int expectedModCount;
+
+		public IteratorHelper(Leaf first) {
+			leaf = first;
+			position = 0;
+			expectedModCount = modCount;
+			skipEmpty();
+		}
+
+		/**
+		 * moves to the next leaf while the current one is used up
+		 */
+
+		private void skipEmpty() {
+			while (leaf != null && position >= leaf.count) {
+				leaf = leaf.next;
+				position = 0;
+			}
+		}
+
+		public boolean hasNext() {
+			return leaf != null;
+		}
+
+		public K next() {
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			if (!hasNext())
+				throw new NoSuchElementException();
+			K key = (K) leaf.keys[position++];
+			skipEmpty();
+			return key;
+		}
+	}
+
+	/**
+	 * calls print method and sends root as parameter
+	 */
+
+	public void print() {
+		print(root, 0);
+	}
+
+	/**
+	 * Recursively prints the tree in order, with one period per level below the
+	 * root. Separator keys of inner nodes are printed between their children.
+	 * @param n the node to print
+	 * @param depth number of levels below the root n is at
+	 */
+
+	private void print (Node n, int depth) {
+		if (n instanceof Leaf) {
+			Leaf leaf = (Leaf) n;
+			for (int i = 0; i < leaf.count; i++) {
+				for (int d = 0; d < depth; d++)
+					System.out.print(".");
+				System.out.println("Key: " + leaf.keys[i] + " Value: " + leaf.values[i]);
+			}
+			return;
+		}
+		Inner inner = (Inner) n;
+		for (int i = 0; i <= inner.count; i++) {
+			print(inner.children[i], depth + 1);
+			if (i < inner.count) {
+				for (int d = 0; d < depth; d++)
+					System.out.print(".");
+				System.out.println("Separator: " + inner.keys[i]);
+			}
+		}
+	}
+}
@@ -0,0 +1,399 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A capacity bounded implementation of the HashI interface, meant to be used as a
+ * cache. Entries are kept in an OpenHash for lookups and threaded on an intrusive
+ * doubly linked list in recency order. When the cache is full, adding a key evicts
+ * the least recently used entry.
+ *
+ * With admission turned on, a TinyLFU style filter decides whether the new key is
+ * worth the eviction: a small count-min sketch estimates how often each key has been
+ * seen recently, and the new key is only let in if it has been seen more often than
+ * the entry it would evict. Otherwise add returns false, like for a full dictionary.
+ *
+ * @param <K> The key for entries in the cache
+ * @param <V> The value for entries in the cache
+ */
+
+public class CacheHash<K, V> implements HashI<K, V> {
+
+	/**
+	 * an entry of the cache, linked in recency order
+	 */
+
+	static class Entry<K, V> {
+		K key;
+		V value;
+		Entry<K, V> previous, next;
+
+		Entry(K key, V value) {
+			this.key = key;
+			this.value = value;
+		}
+	}
+
+	/**
+	 * Count-min sketch of 4 bit counters used by the admission filter. Every counter
+	 * is halved once the number of recorded accesses reaches ten times the capacity,
+	 * so old popularity fades away.
+	 * @param counters one byte per counter, each capped at 15
+	 * @param mask counters.length - 1
+	 * @param additions accesses recorded since the last halving
+	 * @param sampleSize number of accesses between halvings
+	 */
+
+	static class FrequencySketch {
+		static final int[] SEEDS = { 0x97CB3127, 0xB4B82E39, 0x6A09E667, 0x3C6EF372 };
+
+		byte[] counters;
+		int mask;
+		int additions;
+		int sampleSize;
+
+		FrequencySketch(int capacity) {
+			counters = new byte[OpenHash.capacityFor(Math.max(16, capacity * 4))];
+			mask = counters.length - 1;
+			sampleSize = Math.max(16, capacity * 10);
+		}
+
+		/**
+		 * @param hash hash of the key
+		 * @param row which of the four hash functions to use
+		 * @return the counter for the key in that row
+		 */
+
+		private int slot(int hash, int row) {
+			int h = (hash + SEEDS[row]) * SEEDS[row];
+			return (h ^ (h >>> 16)) & mask;
+		}
+
+		/**
+		 * @param hash hash of the key
+		 * @return the estimated number of recent accesses of the key
+		 */
+
+		int frequency(int hash) {
+			int min = 15;
+			for (int row = 0; row < SEEDS.length; row++)
+				min = Math.min(min, counters[slot(hash, row)]);
+			return min;
+		}
+
+		/**
+		 * records an access of the key
+		 * @param hash hash of the key
+		 */
+
+		void increment(int hash) {
+			for (int row = 0; row < SEEDS.length; row++) {
+				int i = slot(hash, row);
+				if (counters[i] < 15)
+					counters[i]++;
+			}
+			if (++additions >= sampleSize) {
+				for (int i = 0; i < counters.length; i++)
+					counters[i] >>= 1;
+				additions /= 2;
+			}
+		}
+	}
+
+	/**
+	 * @param entries index from key to entry
+	 * @param head most recently used entry
+	 * @param tail least recently used entry, the next to be evicted
+	 * @param capacity maximum number of entries
+	 * @param sketch frequency sketch of the admission filter, null if admission is off
+	 * @param hits number of getValue calls that found their key
+	 * @param misses number of getValue calls that did not find their key
+	 * @param evictions number of entries evicted to make room
+	 */
+
+	OpenHash<K, Entry<K, V>> entries;
+	Entry<K, V> head, tail;
+	int capacity;
+	FrequencySketch sketch;
+	long hits, misses, evictions;
+
+	/**
+	 * creates an LRU cache
+	 * @param capacity maximum number of entries
+	 */
+
+	public CacheHash(int capacity) {
+		this(capacity, false);
+	}
+
+	/**
+	 * creates an LRU cache, optionally with the TinyLFU admission filter
+	 * @param capacity maximum number of entries
+	 * @param admission true to only admit keys seen more often than the eviction victim
+	 */
+
+	public CacheHash(int capacity, boolean admission) {
+		this.capacity = Math.max(1, capacity);
+		entries = new OpenHash<K, Entry<K, V>>(this.capacity);
+		if (admission)
+			sketch = new FrequencySketch(this.capacity);
+	}
+
+	/**
+	 * unlinks an entry from the recency list
+	 * @param e the entry to unlink
+	 */
+
+	private void unlink(Entry<K, V> e) {
+		if (e.previous == null)
+			head = e.next;
+		else
+			e.previous.next = e.next;
+		if (e.next == null)
+			tail = e.previous;
+		else
+			e.next.previous = e.previous;
+		e.previous = e.next = null;
+	}
+
+	/**
+	 * links an entry at the most recently used end of the list
+	 * @param e the entry to link
+	 */
+
+	private void linkFirst(Entry<K, V> e) {
+		e.next = head;
+		if (head == null)
+			tail = e;
+		else
+			head.previous = e;
+		head = e;
+	}
+
+	/**
+	 * removes the least recently used entry
+	 */
+
+	private void evict() {
+		Entry<K, V> victim = tail;
+		unlink(victim);
+		entries.remove(victim.key);
+		evictions++;
+	}
+
+	/**
+	 * Adds the key/value pair as the most recently used entry, evicting the least
+	 * recently used entry if the cache is full. Returns false if the key is already
+	 * cached, or if the admission filter turns the key away.
+	 * @param key the key to add
+	 * @param value the value associated with the key
+	 * @return true if the key/value are added to the cache
+	 */
+
+	public boolean add(K key, V value) {
+		if (entries.contains(key))
+			return false;
+		if (sketch != null)
+			sketch.increment(key.hashCode());
+		if (entries.size() >= capacity) {
+			if (sketch != null && sketch.frequency(key.hashCode()) <= sketch.frequency(tail.key.hashCode()))
+				return false;
+			evict();
+		}
+		Entry<K, V> e = new Entry<K, V>(key, value);
+		entries.add(key, e);
+		linkFirst(e);
+		return true;
+	}
+
+	/**
+	 * @param key the key to remove
+	 * @return true if the key was cached and removed
+	 */
+
+	public boolean remove(K key) {
+		Entry<K, V> e = entries.getValue(key);
+		if (e == null)
+			return false;
+		unlink(e);
+		entries.remove(key);
+		return true;
+	}
+
+	/**
+	 * Change the value associated with a cached key. Does not count as a use.
+	 * @param key the key to change
+	 * @param value the new value to assign to the key
+	 * @return true if the key was found, false if not
+	 */
+
+	public boolean changeValue(K key, V value) {
+		Entry<K, V> e = entries.getValue(key);
+		if (e == null)
+			return false;
+		e.value = value;
+		return true;
+	}
+
+	/**
+	 * Test whether the key is cached. Does not count as a use.
+	 * @param key the key to look for
+	 * @return true if the key is cached
+	 */
+
+	public boolean contains(K key) {
+		return entries.contains(key);
+	}
+
+	/**
+	 * Returns the cached value and marks the key as most recently used. Counts a
+	 * hit or a miss.
+	 * @param key the key to find the value for
+	 * @return the value, null if the key is not cached
+	 */
+
+	public V getValue(K key) {
+		if (sketch != null)
+			sketch.increment(key.hashCode());
+		Entry<K, V> e = entries.getValue(key);
+		if (e == null) {
+			misses++;
+			return null;
+		}
+		hits++;
+		if (e != head) {
+			unlink(e);
+			linkFirst(e);
+		}
+		return e.value;
+	}
+
+	/**
+	 * @return the number of cached key/value pairs
+	 */
+
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * @return true if nothing is cached
+	 */
+
+	public boolean isEmpty() {
+		return entries.isEmpty();
+	}
+
+	/**
+	 * drops every entry. The counters are kept.
+	 */
+
+	public void makeEmpty() {
+		entries.makeEmpty();
+		head = tail = null;
+	}
+
+	/**
+	 * @return how full the cache is, from 0 to 1
+	 */
+
+	public double loadFactor() {
+		return (double) entries.size() / capacity;
+	}
+
+	/**
+	 * @return the max load factor of the index
+	 */
+
+	public double getMaxLoadFactor() {
+		return entries.getMaxLoadFactor();
+	}
+
+	/**
+	 * Set the max load factor of the index
+	 */
+
+	public void setMaxLoadFActor(double loadfactor) {
+		entries.setMaxLoadFActor(loadfactor);
+	}
+
+	/**
+	 * Changes the capacity of the cache, evicting least recently used entries until
+	 * the cache fits.
+	 * @param newSize the new capacity
+	 */
+
+	public void resize(int newSize) {
+		capacity = Math.max(1, newSize);
+		while (entries.size() > capacity)
+			evict();
+	}
+
+	/**
+	 * @return the number of getValue calls that found their key
+	 */
+
+	public long getHits() {
+		return hits;
+	}
+
+	/**
+	 * @return the number of getValue calls that did not find their key
+	 */
+
+	public long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * @return the number of entries evicted to make room
+	 */
+
+	public long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * @return hits divided by all getValue calls, 0 if there were none
+	 */
+
+	public double hitRatio() {
+		long total = hits + misses;
+		if (total == 0)
+			return 0;
+		return (double) hits / total;
+	}
+
+	/**
+	 * Returns an Iterator of the keys from most to least recently used.
+	 * @return iterator helper method
+	 */
+
+	public Iterator<K> iterator() {
+		return new IteratorHelper();
+	}
+
+	/**
+	 * walks the recency list
+	 * @param index the next entry to return
+	 */
+
+	class IteratorHelper implements Iterator<K> {
+		Entry<K, V> index;
+
+		public IteratorHelper() {
+			index = head;
+		}
+
+		public boolean hasNext() {
+			return index != null;
+		}
+
+		public K next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			K key = index.key;
+			index = index.next;
+			return key;
+		}
+	}
+}
@@ -0,0 +1,94 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converts keys or values to and from bytes in a ByteBuffer, for structures that
+ * keep their entries off the Java heap. Codecs read and write at absolute offsets,
+ * so fixed width types like ints and longs go straight into the buffer without any
+ * intermediate byte array. Two equal objects must always encode to the same bytes.
+ * Off heap structures hash and match keys by their encoded bytes alone, so two keys
+ * are treated as the same key exactly when they encode to the same bytes, whatever
+ * their hashCode or compareTo methods say.
+ *
+ * @param <T> the type being encoded
+ */
+
+public interface Codec<T> {
+
+	/**
+	 * Returns the number of bytes the object encodes to.
+	 * @param obj the object to measure
+	 * @return the encoded size in bytes
+	 */
+	public int size(T obj);
+
+	/**
+	 * Writes the object into the buffer.
+	 * @param buf the buffer to write to
+	 * @param offset the absolute offset to start writing at
+	 * @param obj the object to write
+	 */
+	public void write(ByteBuffer buf, int offset, T obj);
+
+	/**
+	 * Reads an object back from the buffer.
+	 * @param buf the buffer to read from
+	 * @param offset the absolute offset the object starts at
+	 * @param length the number of bytes the object was encoded to
+	 * @return the object
+	 */
+	public T read(ByteBuffer buf, int offset, int length);
+
+	/**
+	 * Codec for Integer, 4 bytes
+	 */
+	public static final Codec<Integer> INT = new Codec<Integer>() {
+		public int size(Integer obj) {
+			return 4;
+		}
+
+		public void write(ByteBuffer buf, int offset, Integer obj) {
+			buf.putInt(offset, obj);
+		}
+
+		public Integer read(ByteBuffer buf, int offset, int length) {
+			return buf.getInt(offset);
+		}
+	};
+
+	/**
+	 * Codec for Long, 8 bytes
+	 */
+	public static final Codec<Long> LONG = new Codec<Long>() {
+		public int size(Long obj) {
+			return 8;
+		}
+
+		public void write(ByteBuffer buf, int offset, Long obj) {
+			buf.putLong(offset, obj);
+		}
+
+		public Long read(ByteBuffer buf, int offset, int length) {
+			return buf.getLong(offset);
+		}
+	};
+
+	/**
+	 * Codec for String, stored as UTF-8
+	 */
+	public static final Codec<String> STRING = new Codec<String>() {
+		public int size(String obj) {
+			return obj.getBytes(StandardCharsets.UTF_8).length;
+		}
+
+		public void write(ByteBuffer buf, int offset, String obj) {
+			buf.put(offset, obj.getBytes(StandardCharsets.UTF_8));
+		}
+
+		public String read(ByteBuffer buf, int offset, int length) {
+			byte[] bytes = new byte[length];
+			buf.get(offset, bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+	};
+}
@@ -0,0 +1,624 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A thread safe implementation of the HashI interface. Buckets are chains of nodes
+ * like in Hash, but writers only lock the stripe that owns the bucket, and readers
+ * take no locks at all.
+ *
+ * A bucket always belongs to stripe (hash & (STRIPES - 1)), whatever the table
+ * size, so resizing can be done one stripe at a time. When the table grows, each
+ * writer moves the buckets of the stripe it locked into the new table, and then
+ * helps with one other stripe, until every stripe has been moved. A moved bucket is
+ * replaced with a Forward node, which sends readers on to the new table, so readers
+ * never wait for a resize.
+ *
+ * @param <K> The key for entries in the hash
+ * @param <V> The value for entries in the hash
+ */
+
+public class ConcurrentHash<K, V> implements HashI<K, V> {
+
+	/**
+	 * number of lock stripes, and the smallest table size
+	 */
+
+	static final int STRIPES = 32;
+
+	/**
+	 * hash marking a Forward node
+	 */
+
+	static final int MOVED = -1;
+
+	/**
+	 * a bucket entry. key and hash never change, value and next are volatile so
+	 * readers always see writes made under the stripe lock.
+	 */
+
+	static class Node<K, V> {
+		final int hash;
+		final K key;
+		volatile V value;
+		volatile Node<K, V> next;
+
+		Node(int hash, K key, V value, Node<K, V> next) {
+			this.hash = hash;
+			this.key = key;
+			this.value = value;
+			this.next = next;
+		}
+	}
+
+	/**
+	 * put in place of an old bucket once its entries have been moved to table
+	 */
+
+	static class Forward<K, V> extends Node<K, V> {
+		final AtomicReferenceArray<Node<K, V>> table;
+
+		Forward(AtomicReferenceArray<Node<K, V>> table) {
+			super(MOVED, null, null, null);
+			this.table = table;
+		}
+	}
+
+	/**
+	 * the state of one table doubling
+	 * @param oldTable the table being moved out of
+	 * @param newTable the table being moved into
+	 * @param moved which stripes are done, only read or written under that stripe's lock
+	 * @param nextStripe next stripe a helping writer should try
+	 * @param remaining number of stripes still to be moved
+	 */
+
+	static class Resize<K, V> {
+		final AtomicReferenceArray<Node<K, V>> oldTable;
+		final AtomicReferenceArray<Node<K, V>> newTable;
+		final boolean[] moved;
+		final AtomicInteger nextStripe;
+		final AtomicInteger remaining;
+
+		Resize(AtomicReferenceArray<Node<K, V>> oldTable, int newSize) {
+			this.oldTable = oldTable;
+			newTable = new AtomicReferenceArray<Node<K, V>>(newSize);
+			moved = new boolean[STRIPES];
+			nextStripe = new AtomicInteger(0);
+			remaining = new AtomicInteger(STRIPES);
+		}
+	}
+
+	/**
+	 * @param table current table, always a power of two of at least STRIPES
+	 * @param resizing the resize in progress, or null
+	 * @param locks one lock per stripe
+	 * @param numElements current number of elements in the hash
+	 * @param maxLoadFactor max load the hash can reach before growing
+	 */
+
+	volatile AtomicReferenceArray<Node<K, V>> table;
+	final AtomicReference<Resize<K, V>> resizing;
+	final ReentrantLock[] locks;
+	final LongAdder numElements;
+	volatile double maxLoadFactor;
+
+	/**
+	 * creates the table, rounding tableSize up to a power of two of at least STRIPES
+	 * @param tableSize requested initial size of the table
+	 */
+
+	public ConcurrentHash(int tableSize) {
+		table = new AtomicReferenceArray<Node<K, V>>(capacityFor(tableSize));
+		resizing = new AtomicReference<Resize<K, V>>();
+		locks = new ReentrantLock[STRIPES];
+		for (int i = 0; i < STRIPES; i++)
+			locks[i] = new ReentrantLock();
+		numElements = new LongAdder();
+		maxLoadFactor = 0.75;
+	}
+
+	/**
+	 * @param size requested size
+	 * @return size rounded up to a power of two, at least STRIPES
+	 */
+
+	static int capacityFor(int size) {
+		return Math.max(STRIPES, OpenHash.capacityFor(size));
+	}
+
+	/**
+	 * spreads the high bits of hashCode into the low bits, never negative
+	 * @param key the key to hash
+	 * @return the hash
+	 */
+
+	static int hash(Object key) {
+		int h = key.hashCode();
+		return (h ^ (h >>> 16)) & 0x7FFFFFFF;
+	}
+
+	/**
+	 * @param node the node to test
+	 * @param h the hash of key
+	 * @param key the key to test against
+	 * @return true if node holds key
+	 */
+
+	private boolean matches(Node<K, V> node, int h, K key) {
+		return node.hash == h && ((Comparable<K>)node.key).compareTo(key) == 0;
+	}
+
+	/**
+	 * Finds the node for a key without taking any locks, following Forward nodes
+	 * into newer tables.
+	 * @param key the key to look for
+	 * @return the node, or null if the key is not in the hash
+	 */
+
+	private Node<K, V> find(K key) {
+		int h = hash(key);
+		AtomicReferenceArray<Node<K, V>> tab = table;
+		Node<K, V> node = tab.get(h & (tab.length() - 1));
+		while (node != null) {
+			if (node.hash == MOVED) {
+				tab = ((Forward<K, V>) node).table;
+				node = tab.get(h & (tab.length() - 1));
+				continue;
+			}
+			if (matches(node, h, key))
+				return node;
+			node = node.next;
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the table writers of a stripe should use. Must be called while holding
+	 * the stripe's lock. If a resize is in progress and the stripe has not been moved
+	 * yet, it is moved first.
+	 * @param stripe the locked stripe
+	 * @return the table holding the stripe's buckets
+	 */
+
+	private AtomicReferenceArray<Node<K, V>> lockedTable(int stripe) {
+		Resize<K, V> r = resizing.get();
+		if (r == null)
+			return table;
+		if (!r.moved[stripe])
+			move(r, stripe);
+		return r.newTable;
+	}
+
+	/**
+	 * Moves every bucket of a stripe into the new table. Must be called while
+	 * holding the stripe's lock. New nodes are created for the new table so readers
+	 * still walking the old chains are not disturbed.
+	 * @param r the resize in progress
+	 * @param stripe the locked stripe
+	 */
+
+	private void move(Resize<K, V> r, int stripe) {
+		int newMask = r.newTable.length() - 1;
+		for (int i = stripe; i < r.oldTable.length(); i += STRIPES) {
+			for (Node<K, V> n = r.oldTable.get(i); n != null; n = n.next) {
+				int slot = n.hash & newMask;
+				r.newTable.set(slot, new Node<K, V>(n.hash, n.key, n.value, r.newTable.get(slot)));
+			}
+			r.oldTable.set(i, new Forward<K, V>(r.newTable));
+		}
+		r.moved[stripe] = true;
+		if (r.remaining.decrementAndGet() == 0) {
+			table = r.newTable;
+			resizing.set(null);
+		}
+	}
+
+	/**
+	 * Moves one stripe that has not been moved yet, skipping stripes whose lock is
+	 * held by another writer.
+	 * @param r the resize to help with
+	 */
+
+	private void help(Resize<K, V> r) {
+		while (r.remaining.get() > 0) {
+			int stripe = r.nextStripe.getAndIncrement();
+			if (stripe >= STRIPES)
+				break;
+			if (tryMove(r, stripe))
+				return;
+		}
+		for (int stripe = 0; stripe < STRIPES && r.remaining.get() > 0; stripe++)
+			if (tryMove(r, stripe))
+				return;
+	}
+
+	/**
+	 * @param r the resize in progress
+	 * @param stripe the stripe to move
+	 * @return true if the stripe's lock was free and this call moved it
+	 */
+
+	private boolean tryMove(Resize<K, V> r, int stripe) {
+		ReentrantLock lock = locks[stripe];
+		if (!lock.tryLock())
+			return false;
+		try {
+			if (r.moved[stripe])
+				return false;
+			move(r, stripe);
+			return true;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Moves every stripe that has not been moved yet, waiting for locks as needed.
+	 * @param r the resize to finish
+	 */
+
+	private void finish(Resize<K, V> r) {
+		for (int stripe = 0; stripe < STRIPES && r.remaining.get() > 0; stripe++) {
+			ReentrantLock lock = locks[stripe];
+			lock.lock();
+			try {
+				if (!r.moved[stripe])
+					move(r, stripe);
+			}
+			finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Called after every write. Helps with a resize in progress, or starts one
+	 * if the table is over the max load factor.
+	 */
+
+	private void afterWrite() {
+		Resize<K, V> r = resizing.get();
+		if (r != null) {
+			help(r);
+			return;
+		}
+		AtomicReferenceArray<Node<K, V>> tab = table;
+		if (numElements.sum() > maxLoadFactor * tab.length() && tab.length() < (1 << 30))
+			start(tab, tab.length() * 2);
+	}
+
+	/**
+	 * Starts moving tab into a new table of newSize, unless another writer already
+	 * started a resize or tab is no longer the current table.
+	 * @param tab the table the caller saw
+	 * @param newSize the size of the new table
+	 * @return the resize that was started, or null
+	 */
+
+	private Resize<K, V> start(AtomicReferenceArray<Node<K, V>> tab, int newSize) {
+		synchronized (resizing) {
+			if (resizing.get() != null || table != tab)
+				return null;
+			Resize<K, V> r = new Resize<K, V>(tab, newSize);
+			resizing.set(r);
+			help(r);
+			return r;
+		}
+	}
+
+	/**
+	 * adds the key/value pair under the stripe lock. Duplicate keys are rejected.
+	 * @param key the key to add
+	 * @param value the value associated with the key
+	 * @return true if the key/value are added to the hash
+	 */
+
+	public boolean add(K key, V value) {
+		int h = hash(key);
+		int stripe = h & (STRIPES - 1);
+		ReentrantLock lock = locks[stripe];
+		lock.lock();
+		try {
+			AtomicReferenceArray<Node<K, V>> tab = lockedTable(stripe);
+			int slot = h & (tab.length() - 1);
+			Node<K, V> head = tab.get(slot);
+			for (Node<K, V> n = head; n != null; n = n.next)
+				if (matches(n, h, key))
+					return false;
+			tab.set(slot, new Node<K, V>(h, key, value, head));
+			numElements.increment();
+		}
+		finally {
+			lock.unlock();
+		}
+		afterWrite();
+		return true;
+	}
+
+	/**
+	 * unlinks the key's node under the stripe lock. Readers already on the node can
+	 * still follow its next pointer.
+	 * @param key the key to remove
+	 * @return true if the key was found and removed
+	 */
+
+	public boolean remove(K key) {
+		int h = hash(key);
+		int stripe = h & (STRIPES - 1);
+		ReentrantLock lock = locks[stripe];
+		lock.lock();
+		try {
+			AtomicReferenceArray<Node<K, V>> tab = lockedTable(stripe);
+			int slot = h & (tab.length() - 1);
+			Node<K, V> previous = null;
+			Node<K, V> n = tab.get(slot);
+			while (n != null && !matches(n, h, key)) {
+				previous = n;
+				n = n.next;
+			}
+			if (n == null)
+				return false;
+			if (previous == null)
+				tab.set(slot, n.next);
+			else
+				previous.next = n.next;
+			numElements.decrement();
+		}
+		finally {
+			lock.unlock();
+		}
+		afterWrite();
+		return true;
+	}
+
+	/**
+	 * Change the value associated with an existing key.
+	 * @param key the key to change
+	 * @param value the new value to assign to the key
+	 * @return true if the key was found, false if not
+	 */
+
+	public boolean changeValue(K key, V value) {
+		int h = hash(key);
+		int stripe = h & (STRIPES - 1);
+		ReentrantLock lock = locks[stripe];
+		lock.lock();
+		try {
+			AtomicReferenceArray<Node<K, V>> tab = lockedTable(stripe);
+			for (Node<K, V> n = tab.get(h & (tab.length() - 1)); n != null; n = n.next) {
+				if (matches(n, h, key)) {
+					n.value = value;
+					return true;
+				}
+			}
+			return false;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Test whether the hash has the entry associated with the key. Takes no locks.
+	 * @param key the key to look for
+	 * @return true if the key is in the hash
+	 */
+
+	public boolean contains(K key) {
+		return find(key) != null;
+	}
+
+	/**
+	 * Takes no locks.
+	 * @param key the key to find the value for
+	 * @return the value associated with the key, null if not found
+	 */
+
+	public V getValue(K key) {
+		Node<K, V> node = find(key);
+		if (node == null)
+			return null;
+		return node.value;
+	}
+
+	/**
+	 * @return the number of key/value pairs, which may be stale if other threads are writing
+	 */
+
+	public int size() {
+		return (int) numElements.sum();
+	}
+
+	/**
+	 * @return true if there are no entries in the hash
+	 */
+
+	public boolean isEmpty() {
+		return numElements.sum() == 0;
+	}
+
+	/**
+	 * finishes any resize, then swaps in an empty table while holding every stripe lock
+	 */
+
+	public void makeEmpty() {
+		while (true) {
+			Resize<K, V> r = resizing.get();
+			if (r != null) {
+				finish(r);
+				continue;
+			}
+			synchronized (resizing) {
+				if (resizing.get() != null)
+					continue;
+				for (int i = 0; i < STRIPES; i++)
+					locks[i].lock();
+				try {
+					table = new AtomicReferenceArray<Node<K, V>>(table.length());
+					numElements.reset();
+				}
+				finally {
+					for (int i = STRIPES - 1; i >= 0; i--)
+						locks[i].unlock();
+				}
+				return;
+			}
+		}
+	}
+
+	/**
+	 * @return the current load factor of the dictionary (lambda)
+	 */
+
+	public double loadFactor() {
+		return (double) numElements.sum() / table.length();
+	}
+
+	/**
+	 * @return maxLoadFactor
+	 */
+
+	public double getMaxLoadFactor() {
+		return maxLoadFactor;
+	}
+
+	/**
+	 * Set the max load factor at which the table grows
+	 */
+
+	public void setMaxLoadFActor(double loadfactor) {
+		maxLoadFactor = loadfactor;
+	}
+
+	/**
+	 * Moves every entry into a table of newSize, rounded up to a power of two of at
+	 * least STRIPES. Any resize already in progress is finished first. Readers are
+	 * not blocked while this runs.
+	 * @param newSize the size of the new dictionary
+	 */
+
+	public void resize(int newSize) {
+		int size = capacityFor(newSize);
+		while (true) {
+			Resize<K, V> r = resizing.get();
+			if (r != null) {
+				finish(r);
+				continue;
+			}
+			AtomicReferenceArray<Node<K, V>> tab = table;
+			if (tab.length() == size)
+				return;
+			r = start(tab, size);
+			if (r != null) {
+				finish(r);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Returns a weakly consistent Iterator of the keys. It never throws because of
+	 * concurrent writes, and may or may not show keys added or removed after it was
+	 * created.
+	 * @return iterator helper method
+	 */
+
+	public Iterator<K> iterator() {
+		return new IteratorHelper();
+	}
+
+	/**
+	 * walks the table one bucket at a time, buffering the keys of the current bucket
+	 * @param tab the table being walked
+	 * @param bucket the next bucket to read
+	 * @param keys keys of the bucket being handed out
+	 * @param position position in keys
+	 */
+
+	class IteratorHelper implements Iterator<K> {
+		AtomicReferenceArray<Node<K, V>> tab;
+		int bucket;
+		ArrayList<K> keys;
+		int position;
+
+		public IteratorHelper() {
+			tab = table;
+			bucket = 0;
+			keys = new ArrayList<K>();
+			position = 0;
+			advance();
+		}
+
+		/**
+		 * fills keys from the next non empty bucket
+		 */
+
+		private void advance() {
+			while (position >= keys.size() && bucket < tab.length()) {
+				keys.clear();
+				position = 0;
+				collect(tab, tab.length(), bucket);
+				bucket++;
+			}
+		}
+
+		/**
+		 * adds the keys of a bucket of the table being iterated, following Forward
+		 * nodes into newer tables. A newer table may be larger or smaller: the keys
+		 * of the bucket are exactly those whose hash masked to origLength is origSlot,
+		 * so a larger table is read at every bucket they can have moved to, and a
+		 * smaller one at the single bucket they were merged into, keeping only the
+		 * nodes that came from this bucket. Every Forward in a table points to the
+		 * same newer table, which is read once however many of them are found.
+		 * @param t the table to read
+		 * @param origLength length of the table being iterated
+		 * @param origSlot the bucket being read in the table being iterated
+		 */
+
+		private void collect(AtomicReferenceArray<Node<K, V>> t, int origLength, int origSlot) {
+			int length = t.length();
+			int first = origSlot & (length - 1);
+			int step = (length >= origLength) ? origLength : length;
+			AtomicReferenceArray<Node<K, V>> next = null;
+			for (int i = first; i < length; i += step) {
+				Node<K, V> node = t.get(i);
+				if (node != null && node.hash == MOVED) {
+					next = ((Forward<K, V>) node).table;
+					continue;
+				}
+				for (; node != null; node = node.next)
+					if ((node.hash & (origLength - 1)) == origSlot)
+						keys.add(node.key);
+			}
+			if (next != null)
+				collect(next, origLength, origSlot);
+		}
+
+		/**
+		 * @return true if there is another key
+		 */
+
+		public boolean hasNext() {
+			return position < keys.size();
+		}
+
+		/**
+		 * @return next key
+		 */
+
+		public K next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			K key = keys.get(position++);
+			advance();
+			return key;
+		}
+	}
+}
@@ -0,0 +1,256 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A thread safe, unbounded first in first out queue implementing the ListI
+ * interface, built as a Michael-Scott lock-free linked queue. Any number of threads
+ * can call addLast and removeFirst at once. Nothing ever locks: producers link a new
+ * node after the tail with a compare and set, and consumers move the head forward
+ * with a compare and set. A thread that finds the tail lagging behind the last node
+ * moves it forward itself instead of waiting for the thread that lagged.
+ *
+ * The queue only works at its two ends in one direction, so addFirst and removeLast
+ * throw UnsupportedOperationException. null cannot be added, since removeFirst
+ * returns null when the queue is empty. size, contains and iteration are weakly
+ * consistent while other threads are changing the queue.
+ *
+ * @param <E> generics data type
+ */
+
+public class ConcurrentQueue<E> implements ListI<E> {
+
+	/**
+	 * a node of the queue. item is cleared once the node has become the dummy at
+	 * the head, so the object can be garbage collected.
+	 */
+
+	static class Node<E> {
+		volatile E item;
+		final AtomicReference<Node<E>> next;
+
+		Node (E item) {
+			this.item = item;
+			next = new AtomicReference<Node<E>>(null);
+		}
+	}
+
+	/**
+	 * @param head the dummy node before the first object
+	 * @param tail the last node, or a node close behind it
+	 * @param currentSize number of objects in the queue
+	 */
+
+	private final AtomicReference<Node<E>> head;
+	private final AtomicReference<Node<E>> tail;
+	private final AtomicInteger currentSize;
+
+	/**
+	 * creates an empty queue whose head and tail are the same dummy node
+	 */
+
+	public ConcurrentQueue() {
+		Node<E> dummy = new Node<E>(null);
+		head = new AtomicReference<Node<E>>(dummy);
+		tail = new AtomicReference<Node<E>>(dummy);
+		currentSize = new AtomicInteger(0);
+	}
+
+	/**
+	 * Not supported, objects can only be added at the end.
+	 * @throws UnsupportedOperationException always
+	 */
+
+	public void addFirst(E obj) {
+		throw new UnsupportedOperationException("ConcurrentQueue only adds at the end");
+	}
+
+	/**
+	 * Adds an object to the end of the queue by linking it after the last node, then
+	 * swings the tail to it. Either step can fail because another thread got there
+	 * first, in which case the tail is helped forward and the link is tried again.
+	 * @param obj the object to be added, not null
+	 */
+
+	public void addLast(E obj) {
+		if (obj == null)
+			throw new NullPointerException();
+		Node<E> node = new Node<E>(obj);
+		while (true) {
+			Node<E> last = tail.get();
+			Node<E> next = last.next.get();
+			if (last != tail.get())
+				continue;
+			if (next != null) {
+				tail.compareAndSet(last, next);
+				continue;
+			}
+			if (last.next.compareAndSet(null, node)) {
+				tail.compareAndSet(last, node);
+				currentSize.incrementAndGet();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Removes the first Object in the queue and returns it. The node after the dummy
+	 * becomes the new dummy. Returns null if the queue is empty.
+	 * @return the first object
+	 */
+
+	public E removeFirst() {
+		while (true) {
+			Node<E> first = head.get();
+			Node<E> last = tail.get();
+			Node<E> next = first.next.get();
+			if (first != head.get())
+				continue;
+			if (next == null)
+				return null;
+			if (first == last) {
+				tail.compareAndSet(last, next);
+				continue;
+			}
+			E item = next.item;
+			if (head.compareAndSet(first, next)) {
+				next.item = null;
+				currentSize.decrementAndGet();
+				return item;
+			}
+		}
+	}
+
+	/**
+	 * Not supported, objects can only be removed from the front.
+	 * @throws UnsupportedOperationException always
+	 */
+
+	public E removeLast() {
+		throw new UnsupportedOperationException("ConcurrentQueue only removes from the front");
+	}
+
+	/**
+	 * Returns the first Object in the queue, but does not remove it. Returns null if the queue is empty.
+	 * @return the first object
+	 */
+
+	public E peekFirst() {
+		for (Node<E> n = head.get().next.get(); n != null; n = n.next.get()) {
+			E item = n.item;
+			if (item != null)
+				return item;
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the last Object in the queue, but does not remove it. Returns null if the queue is empty.
+	 * @return the object in the last node
+	 */
+
+	public E peekLast() {
+		Node<E> n = tail.get();
+		for (Node<E> next = n.next.get(); next != null; next = n.next.get())
+			n = next;
+		return n.item;
+	}
+
+	/**
+	 * Returns the queue to an empty state by removing objects until there are none.
+	 * Objects added by other threads at the same time may or may not be removed.
+	 */
+
+	public void makeEmpty() {
+		while (removeFirst() != null);
+	}
+
+	/**
+	 * Test whether the queue is empty.
+	 */
+
+	public boolean isEmpty() {
+		return head.get().next.get() == null;
+	}
+
+	/**
+	 * Test whether the queue is full. Always false, the queue is unbounded.
+	 */
+
+	public boolean isFull() {
+		return false;
+	}
+
+	/**
+	 * Returns the number of Objects currently in the queue, which may be stale if
+	 * other threads are adding or removing.
+	 * @return current number of objects in the queue
+	 */
+
+	public int size() {
+		return Math.max(currentSize.get(), 0);
+	}
+
+	/**
+	 * Test whether the queue contains an object, using the object's compareTo method
+	 * to determine whether two objects are the same.
+	 * @param obj the object to look for
+	 * @return true if the object is found
+	 */
+
+	public boolean contains(E obj) {
+		for (E item : this)
+			if (((Comparable<E>) item).compareTo(obj) == 0)
+				return true;
+		return false;
+	}
+
+	/**
+	 * Returns an Iterator of the values in the queue from first to last. Objects
+	 * added or removed while iterating may or may not be seen.
+	 * @return iterator helper method
+	 */
+
+	public Iterator<E> iterator() {
+		return new IteratorHelper();
+	}
+
+	/**
+	 * follows the next links from the head, skipping nodes that were removed
+	 * @param node the node whose item is returned next, null at the end
+	 * @param item the item of node, read when node was reached
+	 */
+
+	class IteratorHelper implements Iterator<E> {
+		Node<E> node;
+		E item;
+
+		public IteratorHelper() {
+			advance(head.get());
+		}
+
+		/**
+		 * @param from the node to start after
+		 */
+
+		private void advance(Node<E> from) {
+			Node<E> n = from.next.get();
+			while (n != null && (item = n.item) == null)
+				n = n.next.get();
+			node = n;
+		}
+
+		public boolean hasNext() {
+			return node != null;
+		}
+
+		public E next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			E tmp = item;
+			advance(node);
+			return tmp;
+		}
+	}
+}
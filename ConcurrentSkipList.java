@@ -0,0 +1,387 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A thread safe ordered map implementing the AVLTreeI interface, built as a lazy
+ * skip list. Every node sits in the bottom list and in a random number of express
+ * lists above it, so searches skip over most nodes.
+ *
+ * Readers never lock: getValue and contains walk the lists and only trust a node
+ * that is fully linked and not marked as removed, which makes them linearizable.
+ * Writers lock just the few predecessor nodes they change, check that those are
+ * still in place, and retry if not, so writers working in different parts of the
+ * key space run in parallel. A node is first marked, then unlinked, on removal.
+ * Iteration walks the bottom list without locking and is weakly consistent.
+ *
+ * @param <K> The key for entries in the list
+ * @param <V> The value for entries in the list
+ */
+
+public class ConcurrentSkipList<K,V> implements AVLTreeI<K, V> {
+
+	/**
+	 * most levels a node can be linked into
+	 */
+
+	static final int MAX_LEVEL = 32;
+
+	/**
+	 * a node linked into levels 0 to topLevel. next pointers are only written while
+	 * holding lock, and read without it.
+	 */
+
+	static class Node<K,V> {
+		final K key;
+		volatile V value;
+		final AtomicReferenceArray<Node<K,V>> next;
+		final int topLevel;
+		final ReentrantLock lock;
+		volatile boolean marked;
+		volatile boolean fullyLinked;
+
+		Node (K key, V value, int topLevel) {
+			this.key = key;
+			this.value = value;
+			this.topLevel = topLevel;
+			next = new AtomicReferenceArray<Node<K,V>>(topLevel + 1);
+			lock = new ReentrantLock();
+		}
+	}
+
+	/**
+	 * @param head sentinel before every key
+	 * @param tail sentinel after every key
+	 * @param currentSize number of keys in the list
+	 * @param levels highest level any node has been linked into
+	 */
+
+	private final Node<K,V> head;
+	private final Node<K,V> tail;
+	private final AtomicInteger currentSize;
+	private final AtomicInteger levels;
+
+	/**
+	 * creates an empty list with the head linked straight to the tail on every level
+	 */
+
+	public ConcurrentSkipList() {
+		head = new Node<K,V>(null, null, MAX_LEVEL - 1);
+		tail = new Node<K,V>(null, null, MAX_LEVEL - 1);
+		for (int i = 0; i < MAX_LEVEL; i++)
+			head.next.set(i, tail);
+		head.fullyLinked = tail.fullyLinked = true;
+		currentSize = new AtomicInteger(0);
+		levels = new AtomicInteger(0);
+	}
+
+	/**
+	 * @param key the key being searched for
+	 * @param node a node of the list
+	 * @return how key compares to the node's key, with the tail after every key
+	 */
+
+	private int compare (Comparable<K> key, Node<K,V> node) {
+		if (node == tail)
+			return -1;
+		return key.compareTo(node.key);
+	}
+
+	/**
+	 * @return a random level, each level half as likely as the one below it
+	 */
+
+	private int randomLevel () {
+		int r = ThreadLocalRandom.current().nextInt();
+		return Math.min(Integer.numberOfTrailingZeros(r), MAX_LEVEL - 1);
+	}
+
+	/**
+	 * Records, for every level, the last node before the key and the node after it.
+	 * @param key the key to look for
+	 * @param preds filled in with the predecessor on each level
+	 * @param succs filled in with the successor on each level
+	 * @return the highest level the key was found on, -1 if it was not found
+	 */
+
+	private int find (K key, Node<K,V>[] preds, Node<K,V>[] succs) {
+		Comparable<K> k = (Comparable<K>) key;
+		int found = -1;
+		Node<K,V> pred = head;
+		for (int level = MAX_LEVEL - 1; level >= 0; level--) {
+			Node<K,V> curr = pred.next.get(level);
+			int cmp;
+			while ((cmp = compare(k, curr)) > 0) {
+				pred = curr;
+				curr = pred.next.get(level);
+			}
+			if (found == -1 && cmp == 0)
+				found = level;
+			preds[level] = pred;
+			succs[level] = curr;
+		}
+		return found;
+	}
+
+	/**
+	 * Finds the key's node without locking or allocating.
+	 * @param key the key to look for
+	 * @return the node if it is fully linked and not removed, otherwise null
+	 */
+
+	private Node<K,V> lookup (K key) {
+		Comparable<K> k = (Comparable<K>) key;
+		Node<K,V> pred = head;
+		for (int level = levels.get(); level >= 0; level--) {
+			Node<K,V> curr = pred.next.get(level);
+			int cmp;
+			while ((cmp = compare(k, curr)) > 0) {
+				pred = curr;
+				curr = pred.next.get(level);
+			}
+			if (cmp == 0)
+				return (curr.fullyLinked && !curr.marked) ? curr : null;
+		}
+		return null;
+	}
+
+	/**
+	 * Adds the key with a random height. The predecessors on every level the node
+	 * will be linked into are locked and checked to still point at the recorded
+	 * successors, otherwise everything is unlocked and the search starts over.
+	 * Duplicate keys are ignored.
+	 * @param key the key to add
+	 * @param value the value associated with the key
+	 */
+
+	public void add(K key, V value) {
+		int topLevel = randomLevel();
+		Node<K,V>[] preds = (Node<K,V>[]) new Node[MAX_LEVEL];
+		Node<K,V>[] succs = (Node<K,V>[]) new Node[MAX_LEVEL];
+		while (true) {
+			int found = find(key, preds, succs);
+			if (found != -1) {
+				Node<K,V> existing = succs[found];
+				if (!existing.marked) {
+					while (!existing.fullyLinked)
+						Thread.onSpinWait();
+					return;
+				}
+				continue;
+			}
+			int highestLocked = -1;
+			try {
+				Node<K,V> previous = null;
+				boolean valid = true;
+				for (int level = 0; valid && level <= topLevel; level++) {
+					Node<K,V> pred = preds[level];
+					Node<K,V> succ = succs[level];
+					if (pred != previous) {
+						pred.lock.lock();
+						highestLocked = level;
+						previous = pred;
+					}
+					valid = !pred.marked && !succ.marked && pred.next.get(level) == succ;
+				}
+				if (!valid)
+					continue;
+				Node<K,V> node = new Node<K,V>(key, value, topLevel);
+				for (int level = 0; level <= topLevel; level++)
+					node.next.set(level, succs[level]);
+				for (int level = 0; level <= topLevel; level++)
+					preds[level].next.set(level, node);
+				node.fullyLinked = true;
+				currentSize.incrementAndGet();
+				levels.accumulateAndGet(topLevel, Math::max);
+				return;
+			}
+			finally {
+				unlock(preds, highestLocked);
+			}
+		}
+	}
+
+	/**
+	 * unlocks the distinct predecessors locked so far
+	 * @param preds the predecessors
+	 * @param highestLocked the highest level whose predecessor was locked, -1 for none
+	 */
+
+	private void unlock (Node<K,V>[] preds, int highestLocked) {
+		Node<K,V> previous = null;
+		for (int level = 0; level <= highestLocked; level++) {
+			if (preds[level] != previous) {
+				preds[level].lock.unlock();
+				previous = preds[level];
+			}
+		}
+	}
+
+	/**
+	 * Removes the key. The node is locked and marked first, which is the moment it
+	 * stops being visible to readers, then its predecessors are locked, checked and
+	 * pointed past it.
+	 * @param key the key to remove
+	 * @return true if the key was found and removed
+	 */
+
+	public boolean remove(K key) {
+		Node<K,V> victim = null;
+		boolean isMarked = false;
+		int topLevel = -1;
+		Node<K,V>[] preds = (Node<K,V>[]) new Node[MAX_LEVEL];
+		Node<K,V>[] succs = (Node<K,V>[]) new Node[MAX_LEVEL];
+		while (true) {
+			int found = find(key, preds, succs);
+			if (found != -1)
+				victim = succs[found];
+			if (!isMarked) {
+				if (found == -1 || !victim.fullyLinked || victim.marked || victim.topLevel != found)
+					return false;
+				topLevel = victim.topLevel;
+				victim.lock.lock();
+				if (victim.marked) {
+					victim.lock.unlock();
+					return false;
+				}
+				victim.marked = true;
+				isMarked = true;
+			}
+			int highestLocked = -1;
+			try {
+				Node<K,V> previous = null;
+				boolean valid = true;
+				for (int level = 0; valid && level <= topLevel; level++) {
+					Node<K,V> pred = preds[level];
+					if (pred != previous) {
+						pred.lock.lock();
+						highestLocked = level;
+						previous = pred;
+					}
+					valid = !pred.marked && pred.next.get(level) == victim;
+				}
+				if (!valid)
+					continue;
+				for (int level = topLevel; level >= 0; level--)
+					preds[level].next.set(level, victim.next.get(level));
+				victim.lock.unlock();
+				currentSize.decrementAndGet();
+				return true;
+			}
+			finally {
+				unlock(preds, highestLocked);
+			}
+		}
+	}
+
+	/**
+	 * Tests whether the list contains the key, without locking
+	 * @param key the key to look for
+	 * @return whether the key is found
+	 */
+
+	public boolean contains(K key) {
+		return lookup(key) != null;
+	}
+
+	/**
+	 * Get the value associated with a given key, without locking
+	 * @param key the key to get the value for
+	 * @return the current value, null if the key is not found
+	 */
+
+	public V getValue(K key) {
+		Node<K,V> node = lookup(key);
+		if (node == null)
+			return null;
+		return node.value;
+	}
+
+	/**
+	 * @return current number of keys, which may be stale if other threads are writing
+	 */
+
+	public int size() {
+		return currentSize.get();
+	}
+
+	/**
+	 * @return true if there are no keys
+	 */
+
+	public boolean isEmpty() {
+		return currentSize.get() == 0;
+	}
+
+	/**
+	 * @return the highest express level in use, 0 when only the bottom list is used
+	 */
+
+	public int height() {
+		return levels.get();
+	}
+
+	/**
+	 * Iterates over the keys in ascending order by walking the bottom list. Keys
+	 * added or removed while iterating may or may not be seen.
+	 * @return iterator over the keys
+	 */
+
+	public Iterator<K> iterator() {
+		return new IteratorHelper();
+	}
+
+	/**
+	 * walks level 0, skipping nodes that are removed or not fully linked yet
+	 * @param next the next node to return
+	 */
+
+	class IteratorHelper implements Iterator<K> {
+		Node<K,V> next;
+
+		public IteratorHelper() {
+			next = advance(head);
+		}
+
+		/**
+		 * @param from the node to start after
+		 * @return the first live node after from, null at the end
+		 */
+
+		private Node<K,V> advance (Node<K,V> from) {
+			Node<K,V> n = from.next.get(0);
+			while (n != tail && (n.marked || !n.fullyLinked))
+				n = n.next.get(0);
+			return (n == tail) ? null : n;
+		}
+
+		public boolean hasNext() {
+			return next != null;
+		}
+
+		public K next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			K key = next.key;
+			next = advance(next);
+			return key;
+		}
+	}
+
+	/**
+	 * prints the keys in order, each with one period per express level it is linked into
+	 */
+
+	public void print() {
+		for (Node<K,V> n = head.next.get(0); n != tail; n = n.next.get(0)) {
+			if (n.marked)
+				continue;
+			for (int i = 0; i < n.topLevel; i++)
+				System.out.print(".");
+			System.out.println("Key: " + n.key + " Value: " + n.value);
+		}
+	}
+}
@@ -1,4 +1,12 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 /**
  * The Hash data structure has O(1) time complexity (best case) for add, remove, and find
@@ -24,14 +32,28 @@ public class Hash<K, V> implements HashI<K, V> {
 	class HashElement<K, V> implements Comparable<HashElement<K, V>> {
 		K key;
 		V value;
+		int hash;
 
 		public HashElement(K key, V value) {
 			this.key = key;
 			this.value = value;
 		}
 
+		public HashElement(K key, V value, int hash) {
+			this.key = key;
+			this.value = value;
+			this.hash = hash;
+		}
+
+		/**
+		 * with a HashStrategy there is no ordering, so this only reports whether
+		 * the keys are the same, as 0, or not
+		 */
+
 		public int compareTo(HashElement<K, V> o) {
-			return (((Comparable<K>)o.key).compareTo(this.key));
+			if (strategy == null)
+				return (((Comparable<K>)o.key).compareTo(this.key));
+			return sameKey(o.key, this.key) ? 0 : 1;
 		}
 	}
 
@@ -47,18 +69,72 @@ public class Hash<K, V> implements HashI<K, V> {
 	int numElements;
 	double maxLoadFactor;
 
+	/**
+	 * @param MIGRATE_BUCKETS number of old buckets moved on each operation during an incremental resize
+	 * @param incrementalResize whether resizes are spread over later operations
+	 * @param oldArray the table being migrated out of, null when no resize is in progress
+	 * @param oldSize size of oldArray
+	 * @param migrateIndex next bucket of oldArray to migrate
+	 * @param powerOfTwo whether table sizes are powers of two, indexed with a mask instead of a modulo
+	 * @param strategy hashes and matches keys, null to use their hashCode and compareTo methods
+	 */
+
+	static final int MIGRATE_BUCKETS = 8;
+	boolean incrementalResize;
+	LinkedList <HashElement<K, V>>[] oldArray;
+	int oldSize;
+	int migrateIndex;
+	final boolean powerOfTwo;
+	final HashStrategy<? super K> strategy;
+
 	/**
 	 * creates an array size of tableSize and adds new objects until tableSize is met
 	 * @param tableSize current size of table
 	 */
 
 	public Hash(int tableSize) {
+		this(tableSize, false, null);
+	}
+
+	/**
+	 * same as Hash(tableSize, powerOfTwo) with keys using their own hashCode and compareTo
+	 * @param tableSize current size of table
+	 * @param powerOfTwo true to use power of two table sizes
+	 */
+
+	public Hash(int tableSize, boolean powerOfTwo) {
+		this(tableSize, powerOfTwo, null);
+	}
+
+	/**
+	 * creates a hash whose keys are hashed and matched by strategy, so they do not
+	 * have to implement Comparable
+	 * @param tableSize current size of table
+	 * @param strategy hashes and matches keys, null to use their hashCode and compareTo methods
+	 */
+
+	public Hash(int tableSize, HashStrategy<? super K> strategy) {
+		this(tableSize, false, strategy);
+	}
+
+	/**
+	 * creates an array size of tableSize and adds new objects until tableSize is met.
+	 * In power of two mode tableSize is rounded up to a power of two, buckets are
+	 * picked with a mask instead of a modulo, and hash codes are run through a
+	 * spread function first so weak hashCode methods still use every bucket.
+	 * @param tableSize current size of table
+	 * @param powerOfTwo true to use power of two table sizes
+	 * @param strategy hashes and matches keys, null to use their hashCode and compareTo methods
+	 */
+
+	public Hash(int tableSize, boolean powerOfTwo, HashStrategy<? super K> strategy) {
+		this.powerOfTwo = powerOfTwo;
+		this.strategy = strategy;
+		if (powerOfTwo)
+			tableSize = OpenHash.capacityFor(tableSize);
 		this.tableSize = tableSize;
 		harray = (LinkedList<HashElement<K, V>>[]) new LinkedList[tableSize];
 
-		for (int i = 0; i < tableSize; i++)
-			harray [i] = new LinkedList<HashElement<K, V>>();
-
 		maxLoadFactor = 0.75;
 		numElements = 0;
 	}
@@ -74,55 +150,183 @@ public class Hash<K, V> implements HashI<K, V> {
 	 */
 
 	public boolean add(K key, V value) {
+		migrate();
 		if (loadFactor() > maxLoadFactor) {
 			int newSize = tableSize * 2;
 			resize(newSize);
 		}
-		HashElement<K, V> newhe = new HashElement<K, V> (key, value);
-		int hashval = key.hashCode();
-		hashval = hashval & 0x7FFFFFFF;
-		hashval = hashval % tableSize;
-		harray[hashval].add(newhe);
+		int hashval = hash(key);
+		HashElement<K, V> newhe = new HashElement<K, V> (key, value, hashval);
+		bucket(index(hashval, tableSize)).addFirst(newhe);
 		numElements++;
 		return true;
 	}
 
 	/**
-	 * removes a hash element from harray
+	 * Buckets are only created when something is first put in them, so a new or
+	 * resized table is a single array allocation. A null bucket is empty.
+	 * @param i the bucket index in harray
+	 * @return the bucket, created if it did not exist yet
+	 */
+
+	private LinkedList<HashElement<K, V>> bucket(int i) {
+		LinkedList<HashElement<K, V>> list = harray[i];
+		if (list == null)
+			harray[i] = list = new LinkedList<HashElement<K, V>>();
+		return list;
+	}
+
+	/**
+	 * computes the hash that is cached in each hash element. In power of two mode the
+	 * bits of hashCode are mixed so the low bits picked by the mask depend on all of them.
+	 * @param key the key to hash
+	 * @return the hash of the key
+	 */
+
+	private int hash(K key) {
+		int hashval = (strategy == null) ? key.hashCode() : strategy.hashCode(key);
+		if (powerOfTwo) {
+			hashval ^= (hashval >>> 16);
+			hashval *= 0x85EBCA6B;
+			hashval ^= (hashval >>> 13);
+		}
+		return hashval;
+	}
+
+	/**
+	 * computes the bucket a hash belongs in for a table of the given size
+	 * @param hashval the hash of the key
+	 * @param size the size of the table
+	 * @return the bucket index
+	 */
+
+	private int index(int hashval, int size) {
+		if (powerOfTwo)
+			return hashval & (size - 1);
+		hashval = hashval & 0x7FFFFFFF;
+		return hashval % size;
+	}
+
+	/**
+	 * looks for the key in harray, then in oldArray if a resize is in progress.
+	 * The cached hash is compared first, so keys are only matched on likely hits.
+	 * @param key the key to look for
+	 * @return the hash element holding the key, null if not found
+	 */
+
+	private HashElement<K, V> find(K key) {
+		int hashval = hash(key);
+		HashElement<K, V> he = find(harray[index(hashval, tableSize)], key, hashval);
+		if (he == null && oldArray != null && index(hashval, oldSize) >= migrateIndex)
+			he = find(oldArray[index(hashval, oldSize)], key, hashval);
+		return he;
+	}
+
+	/**
+	 * looks for the key in one bucket. The loop is written out once for compareTo
+	 * and once for the strategy, so each copy makes the same kind of call every time.
+	 * @param bucket the bucket to search, null if it was never created
+	 * @param key the key to look for
+	 * @param hashval the hash of the key
+	 * @return the hash element holding the key, null if not found
+	 */
+
+	private HashElement<K, V> find(LinkedList<HashElement<K, V>> bucket, K key, int hashval) {
+		if (bucket == null)
+			return null;
+		if (strategy == null) {
+			for (HashElement <K, V> he : bucket)
+				if (he.hash == hashval && ((Comparable<K>)he.key).compareTo(key) == 0)
+					return he;
+			return null;
+		}
+		for (HashElement <K, V> he : bucket)
+			if (he.hash == hashval && strategy.equals(he.key, key))
+				return he;
+		return null;
+	}
+
+	/**
+	 * @param a a key
+	 * @param b another key
+	 * @return true if the strategy says the keys are the same
+	 */
+
+	private boolean sameKey(Object a, Object b) {
+		return ((HashStrategy<Object>) strategy).equals(a, b);
+	}
+
+	/**
+	 * Returns an Iterator of the keys in ascending natural order. A hash built with
+	 * a HashStrategy usually holds keys that are not Comparable, so it has no
+	 * natural order to use: call sortedIterator(Comparator) instead.
+	 * @return an Iterator over the sorted keys
+	 * @throws IllegalStateException if this hash uses a HashStrategy
+	 */
+
+	public Iterator<K> sortedIterator() {
+		if (strategy != null)
+			throw new IllegalStateException("Hash uses a HashStrategy, pass a Comparator to sortedIterator");
+		return HashI.super.sortedIterator();
+	}
+
+	/**
+	 * removes a hash element from harray, or from oldArray if it has not been migrated yet
 	 * decreases numElements
 	 * @param key the key to remove
+	 * @return true if the key was found and removed
 	 */
 
 	public boolean remove(K key) {
-		int hashval = key.hashCode();
-		hashval = hashval & 0x7FFFFFFF;
-		hashval = hashval % tableSize;
-		harray[hashval].remove((Hash<K, V>.HashElement<K, V>)key);
-		numElements--;
-		return true;
+		migrate();
+		int hashval = hash(key);
+		boolean removed = remove(harray[index(hashval, tableSize)], key, hashval);
+		if (!removed && oldArray != null && index(hashval, oldSize) >= migrateIndex)
+			removed = remove(oldArray[index(hashval, oldSize)], key, hashval);
+		if (removed)
+			numElements--;
+		return removed;
 	}
 
 	/**
-	 * Checks if the key changed, then finds the correct value for that key
-	 * @return true if changed, false if not
-	 * @param key the key to change
-	 * @param value the new value to assign to the key
+	 * walks one bucket with its iterator and unlinks the matching node in place,
+	 * so the bucket is only searched once and no throwaway element is created
+	 * @param bucket the bucket to search, null if it was never created
+	 * @param key the key to remove
+	 * @param hashval the hash of the key
+	 * @return true if the key was found and removed
 	 */
 
-	public boolean changeValue(K key, V value) {
-		int hashval = key.hashCode();
-		hashval = hashval & 0x7FFFFFFF;
-		hashval = hashval % tableSize;
-
-		for (HashElement <K, V> he : harray[hashval]) {
-			if (((Comparable<K>)he.key).compareTo(key) != 0) {
-				key = he.key;
-				value = getValue(key);
+	private boolean remove(LinkedList<HashElement<K, V>> bucket, K key, int hashval) {
+		if (bucket == null)
+			return false;
+		Iterator<HashElement<K, V>> it = bucket.iterator();
+		while (it.hasNext()) {
+			HashElement<K, V> he = it.next();
+			if (he.hash == hashval && (strategy == null
+					? ((Comparable<K>)he.key).compareTo(key) == 0 : strategy.equals(he.key, key))) {
+				it.remove();
 				return true;
 			}
 		}
 		return false;
 	}
+
+	/**
+	 * finds the hash element for the key and assigns it the new value
+	 * @return true if changed, false if the key was not found
+	 * @param key the key to change
+	 * @param value the new value to assign to the key
+	 */
+
+	public boolean changeValue(K key, V value) {
+		migrate();
+		HashElement<K, V> he = find(key);
+		if (he == null)
+			return false;
+		he.value = value;
+		return true;
+	}
 	
 	/**
 	 * Test whether the hash has the entry associated with the key.
@@ -131,31 +335,22 @@ public class Hash<K, V> implements HashI<K, V> {
 	 */
 	
 	public boolean contains(K key) {
-		int hashval = key.hashCode();
-		hashval = hashval & 0x7FFFFFFF;
-		hashval = hashval % tableSize;
-		
-		for (HashElement <K, V> he : harray[hashval]) 
-			if (((Comparable<K>)he.key).compareTo(key) == 0)
-				return true;
-		return false;
+		migrate();
+		return find(key) != null;
 	}
 
 	/**
-	 * gets the desired he value if he.key and key are not equal
+	 * gets the value of the hash element holding the key
 	 * @param key the key to find the value for
-	 * @return the desired hash element in 'he'
+	 * @return the value, null if the key is not found
 	 */
 
 	public V getValue(K key) {
-		int hashval = key.hashCode();
-		hashval = hashval & 0x7FFFFFFF;
-		hashval = hashval % tableSize;
-
-		for (HashElement <K, V> he : harray[hashval]) 
-			if (((Comparable<K>)he.key).compareTo(key) == 0)
-				return he.value;
-		return null;
+		migrate();
+		HashElement<K, V> he = find(key);
+		if (he == null)
+			return null;
+		return he.value;
 	}
 
 	/**
@@ -167,24 +362,23 @@ public class Hash<K, V> implements HashI<K, V> {
 	}
 
 	/**
-	 * checks if first element in array is null
-	 * if null, return true. if full, return false
-	 * @return true or false depending on if harray has elements
+	 * checks the element count, since every bucket always holds a list
+	 * @return true if there are no elements in the hash, false if there are
 	 */
 
 	public boolean isEmpty() {
-		return (harray[0] == null);
+		return numElements == 0;
 	}
 
 	/**
-	 * makes harray null
-	 * sets numElemets to 0
+	 * drops every bucket, they are created again as keys are added. Drops any resize in progress
+	 * sets numElements to 0
 	 */
 
 	public void makeEmpty() {
-		harray = null;
+		Arrays.fill(harray, null);
+		oldArray = null;
 		numElements = 0;
-
 	}
 
 	/**
@@ -193,7 +387,7 @@ public class Hash<K, V> implements HashI<K, V> {
 	 */
 
 	public double loadFactor() {
-		return numElements / tableSize;
+		return (double) numElements / tableSize;
 	}
 
 	/**
@@ -214,74 +408,370 @@ public class Hash<K, V> implements HashI<K, V> {
 	}
 
 	/**
-	 * resizes the list with a temporary array
+	 * Adds a batch of key/value pairs like add does, but finishes any migration and
+	 * grows the table once for the whole batch up front, so each pair is just linked
+	 * into its bucket without checking the load factor again.
+	 * @param keys the keys to add
+	 * @param values the values, values[i] goes with keys[i]
+	 * @return the number of pairs that were added
+	 */
+
+	public int addAll(K[] keys, V[] values) {
+		int n = keys.length;
+		finishMigration();
+		if (numElements + n > maxLoadFactor * tableSize) {
+			resize((int) Math.min(Integer.MAX_VALUE - 8, (long) ((numElements + n) / maxLoadFactor) + 1));
+			finishMigration();
+		}
+		for (int i = 0; i < n; i++) {
+			int hashval = hash(keys[i]);
+			bucket(index(hashval, tableSize)).addFirst(new HashElement<K, V>(keys[i], values[i], hashval));
+		}
+		numElements += n;
+		return n;
+	}
+
+	/**
+	 * Looks up a batch of keys, finishing any migration first so each lookup only
+	 * has to check harray.
+	 * @param keys the keys to look for
+	 * @param values filled in with the values, values[i] goes with keys[i]
+	 * @return the number of keys that were found
+	 */
+
+	public int getAll(K[] keys, V[] values) {
+		finishMigration();
+		int found = 0;
+		for (int i = 0; i < keys.length; i++) {
+			HashElement<K, V> he = find(keys[i]);
+			values[i] = (he == null) ? null : he.value;
+			if (he != null)
+				found++;
+		}
+		return found;
+	}
+
+	/**
+	 * Sets whether resizes are incremental. When they are, resize only allocates the
+	 * new table, and the buckets of the old table are moved MIGRATE_BUCKETS at a time
+	 * by later calls to add, remove, changeValue, contains and getValue, so no single
+	 * call pays for rehashing the whole table.
+	 * @param incremental true to spread resizes over later operations
+	 */
+
+	public void setIncrementalResize(boolean incremental) {
+		incrementalResize = incremental;
+		if (!incremental)
+			finishMigration();
+	}
+
+	/**
+	 * resizes the list with a temporary array. The existing hash elements are moved
+	 * into the new buckets using their cached hash, nothing is reallocated or rehashed.
+	 * The new array starts with no buckets, so in incremental mode, where the old
+	 * array is kept in oldArray and migrated by later operations, a resize costs just
+	 * the one array allocation. In power of two mode newSize is rounded up to a power of two.
 	 * @param harray assigned to tmparray, becomes what tmparray was
 	 * @param newSize the size of the new dictionary
 	 */
 
 	public void resize(int newSize) {
+		finishMigration();
+		if (powerOfTwo)
+			newSize = OpenHash.capacityFor(newSize);
 		LinkedList<HashElement<K, V>> [] tmparray = (LinkedList<HashElement<K, V>>[]) new LinkedList[newSize];
-
-		for (int i = 0; i < newSize; i++)
-			tmparray[i] = new LinkedList <HashElement<K, V>>();
-		for (K key : this) {
-			V val = getValue(key);
-			HashElement<K, V> newhe = new HashElement<K, V>(key, val);
-			int hashval = key.hashCode();
-			hashval = hashval & 0x7FFFFFFF;
-			hashval = hashval % newSize;
-			tmparray[hashval].add(newhe);
-		}
+		oldArray = harray;
+		oldSize = tableSize;
+		migrateIndex = 0;
 		harray = tmparray;
 		tableSize = newSize;
+		if (!incrementalResize)
+			finishMigration();
+	}
+
+	/**
+	 * moves up to MIGRATE_BUCKETS buckets of oldArray into harray, dropping
+	 * oldArray once every bucket has been moved
+	 */
+
+	private void migrate() {
+		if (oldArray == null)
+			return;
+		int end = Math.min(migrateIndex + MIGRATE_BUCKETS, oldSize);
+		for (; migrateIndex < end; migrateIndex++) {
+			if (oldArray[migrateIndex] == null)
+				continue;
+			for (HashElement<K, V> he : oldArray[migrateIndex])
+				bucket(index(he.hash, tableSize)).addFirst(he);
+			oldArray[migrateIndex] = null;
+		}
+		if (migrateIndex == oldSize)
+			oldArray = null;
 	}
 
 	/**
-	 * Returns an Iterator of the values in the list, presented in the same order as the list.
+	 * moves every bucket of oldArray that has not been migrated yet
+	 */
+
+	private void finishMigration() {
+		while (oldArray != null)
+			migrate();
+	}
+
+	/**
+	 * @param SNAPSHOT_MAGIC first int of a snapshot file
+	 * @param SNAPSHOT_VERSION version of the snapshot layout
+	 * @param SNAPSHOT_WINDOW most bytes of a snapshot mapped at once while restoring
+	 */
+
+	static final int SNAPSHOT_MAGIC = 0x48415348;
+	static final int SNAPSHOT_VERSION = 1;
+	static final int SNAPSHOT_WINDOW = 1 << 30;
+
+	/**
+	 * Writes the whole table to a file. The layout is a header (magic, version,
+	 * tableSize, numElements, power of two flag, maxLoadFactor) followed by every
+	 * bucket in order: its number of entries, then for each entry the cached hash,
+	 * the key length, the value length, the key bytes and the value bytes.
+	 * Because the hashes and bucket layout are saved, restore never calls hashCode,
+	 * so keys must have a hashCode that is the same in every JVM (String, Integer,
+	 * Long and so on).
+	 * @param file the file to write, replaced if it exists
+	 * @param keyCodec encodes the keys
+	 * @param valueCodec encodes the values
+	 * @throws IOException if the file cannot be written
+	 */
+
+	public void snapshot(Path file, Codec<K> keyCodec, Codec<V> valueCodec) throws IOException {
+		finishMigration();
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			ByteBuffer out = ByteBuffer.allocate(1 << 20);
+			out.putInt(SNAPSHOT_MAGIC);
+			out.putInt(SNAPSHOT_VERSION);
+			out.putInt(tableSize);
+			out.putInt(numElements);
+			out.putInt(powerOfTwo ? 1 : 0);
+			out.putDouble(maxLoadFactor);
+			for (int i = 0; i < tableSize; i++) {
+				out = reserve(channel, out, 4);
+				if (harray[i] == null) {
+					out.putInt(0);
+					continue;
+				}
+				out.putInt(harray[i].size());
+				for (HashElement<K, V> he : harray[i]) {
+					int keyLength = keyCodec.size(he.key);
+					int valueLength = valueCodec.size(he.value);
+					out = reserve(channel, out, 12 + keyLength + valueLength);
+					out.putInt(he.hash);
+					out.putInt(keyLength);
+					out.putInt(valueLength);
+					keyCodec.write(out, out.position(), he.key);
+					out.position(out.position() + keyLength);
+					valueCodec.write(out, out.position(), he.value);
+					out.position(out.position() + valueLength);
+				}
+			}
+			flush(channel, out);
+		}
+	}
+
+	/**
+	 * makes sure the write buffer has room for length more bytes, flushing it to the
+	 * channel or replacing it with a bigger one as needed
+	 * @param channel the file being written
+	 * @param out the write buffer
+	 * @param length the number of bytes about to be written
+	 * @return the buffer to write to
+	 * @throws IOException if the file cannot be written
+	 */
+
+	private static ByteBuffer reserve(FileChannel channel, ByteBuffer out, int length) throws IOException {
+		if (out.remaining() >= length)
+			return out;
+		flush(channel, out);
+		if (out.capacity() < length)
+			return ByteBuffer.allocate(length);
+		return out;
+	}
+
+	/**
+	 * writes out everything in the buffer and clears it
+	 * @param channel the file being written
+	 * @param out the write buffer
+	 * @throws IOException if the file cannot be written
+	 */
+
+	private static void flush(FileChannel channel, ByteBuffer out) throws IOException {
+		out.flip();
+		while (out.hasRemaining())
+			channel.write(out);
+		out.clear();
+	}
+
+	/**
+	 * Rebuilds a Hash from a file written by snapshot. The file is memory mapped, so
+	 * it is paged in by the operating system as it is read, and each entry is linked
+	 * straight into the bucket it was saved from using its saved hash, without
+	 * calling hashCode or resizing.
+	 * @param file the snapshot file
+	 * @param keyCodec decodes the keys, must match the codec used by snapshot
+	 * @param valueCodec decodes the values, must match the codec used by snapshot
+	 * @return the restored hash
+	 * @throws IOException if the file cannot be read or is not a snapshot
+	 */
+
+	public static <K, V> Hash<K, V> restore(Path file, Codec<K> keyCodec, Codec<V> valueCodec) throws IOException {
+		return restore(file, keyCodec, valueCodec, null);
+	}
+
+	/**
+	 * Same as restore(file, keyCodec, valueCodec), for a hash that was saved while
+	 * using a HashStrategy. The saved hashes came from the strategy, so the same
+	 * strategy must be passed back in.
+	 * @param file the snapshot file
+	 * @param keyCodec decodes the keys, must match the codec used by snapshot
+	 * @param valueCodec decodes the values, must match the codec used by snapshot
+	 * @param strategy the strategy the saved hash used, null for none
+	 * @return the restored hash
+	 * @throws IOException if the file cannot be read or is not a snapshot
+	 */
+
+	public static <K, V> Hash<K, V> restore(Path file, Codec<K> keyCodec, Codec<V> valueCodec,
+			HashStrategy<? super K> strategy) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			SnapshotReader in = new SnapshotReader(channel);
+			ByteBuffer buf = in.need(28);
+			if (buf.getInt() != SNAPSHOT_MAGIC || buf.getInt() != SNAPSHOT_VERSION)
+				throw new IOException(file + " is not a Hash snapshot");
+			int size = buf.getInt();
+			int count = buf.getInt();
+			boolean powerOfTwo = buf.getInt() != 0;
+			double maxLoadFactor = buf.getDouble();
+
+			Hash<K, V> hash = new Hash<K, V>(size, powerOfTwo, strategy);
+			hash.maxLoadFactor = maxLoadFactor;
+			for (int i = 0; i < size; i++) {
+				int entries = in.need(4).getInt();
+				if (entries == 0)
+					continue;
+				LinkedList<Hash<K, V>.HashElement<K, V>> bucket = hash.bucket(i);
+				for (int e = 0; e < entries; e++) {
+					buf = in.need(12);
+					int hashval = buf.getInt();
+					int keyLength = buf.getInt();
+					int valueLength = buf.getInt();
+					buf = in.need(keyLength + valueLength);
+					K key = keyCodec.read(buf, buf.position(), keyLength);
+					V value = valueCodec.read(buf, buf.position() + keyLength, valueLength);
+					buf.position(buf.position() + keyLength + valueLength);
+					bucket.addFirst(hash.new HashElement<K, V>(key, value, hashval));
+				}
+			}
+			hash.numElements = count;
+			return hash;
+		}
+	}
+
+	/**
+	 * Reads a snapshot through a memory mapped window of at most SNAPSHOT_WINDOW
+	 * bytes, mapping the next window when a read would run past the current one.
+	 * @param channel the snapshot file
+	 * @param base file offset the current window starts at
+	 * @param window the current mapping
+	 */
+
+	static class SnapshotReader {
+		FileChannel channel;
+		long base;
+		MappedByteBuffer window;
+
+		SnapshotReader(FileChannel channel) throws IOException {
+			this.channel = channel;
+			base = 0;
+			window = map(0);
+		}
+
+		private MappedByteBuffer map(long from) throws IOException {
+			return channel.map(FileChannel.MapMode.READ_ONLY, from, Math.min(SNAPSHOT_WINDOW, channel.size() - from));
+		}
+
+		/**
+		 * @param length number of bytes about to be read
+		 * @return the window, positioned at the next unread byte, with at least length bytes remaining
+		 * @throws IOException if the file ends first
+		 */
+
+		ByteBuffer need(int length) throws IOException {
+			if (window.remaining() < length) {
+				base += window.position();
+				if (channel.size() - base < length)
+					throw new IOException("snapshot is truncated");
+				window = map(base);
+			}
+			return window;
+		}
+	}
+
+	/**
+	 * Returns an Iterator of the keys in bucket order. Any migration in progress is
+	 * finished first, so lookups made while iterating cannot move keys around.
+	 * The keys are read from the buckets as the iterator advances, nothing is copied.
+	 * Use sortedIterator for the keys in ascending order.
 	 * @return iterator helper method
 	 */
 
 	public Iterator<K> iterator() {
+		finishMigration();
 		return new IteratorHelper();
 	}
 
 	/**
-	 * declares Keys array and adds each element of harray to Keys
-	 * @param Keys array called Keys
-	 * @param position position in array
+	 * walks harray one bucket at a time
+	 * @param bucket the bucket after the one being walked
+	 * @param elements iterator over the bucket being walked
 	 */
 
-	class IteratorHelper <T> implements Iterator<T> {
-		T[] Keys;
-		int position;
+	class IteratorHelper implements Iterator<K> {
+		int bucket;
+		Iterator<HashElement<K, V>> elements;
 
 		public IteratorHelper() {
-			Keys = (T[]) new Object[numElements];
-			int counter = 0;
-			for (int i = 0; i < tableSize; i++) {
-				LinkedList <HashElement<K, V>> list = harray[i];
-				for (HashElement <K, V> he : harray[i])
-					Keys[counter++] = (T) he.key;
+			bucket = 0;
+			elements = null;
+			advance();
+		}
+
+		/**
+		 * moves on to the next non empty bucket if the current one is used up
+		 */
+
+		private void advance() {
+			while ((elements == null || !elements.hasNext()) && bucket < tableSize) {
+				LinkedList<HashElement<K, V>> list = harray[bucket++];
+				elements = (list == null || list.isEmpty()) ? null : list.iterator();
 			}
-			position = 0;
 		}
 
 		/**
-		 * @return true of position in array is not at the end, false if so
+		 * @return true if there is another key in the hash
 		 */
 
 		public boolean hasNext() {
-			return position < Keys.length;
+			return elements != null && elements.hasNext();
 		}
 
 		/**
-		 * @return next element in Keys array
+		 * @return next key in the hash
 		 */
 
-		public T next() {
+		public K next() {
 			if (!hasNext())
-				return null;
-			return Keys[position++];
+				throw new NoSuchElementException();
+			K key = elements.next().key;
+			advance();
+			return key;
 		}
 	}
 }
@@ -1,4 +1,7 @@
-import java.util.Iterator;  
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;  
 
 /**
  * The Hash interface that describes the methods that our hash will
@@ -110,11 +113,104 @@ public interface HashI<K, V> extends Iterable<K> {
 	public void resize(int newSize);
 	
 	/**
-	 * Returns an Iterator of the keys in the dictionary, in ascending 
-	 * sorted order 
+	 * Adds every key/value pair of the two parallel arrays, as if add were
+	 * called for each index in order. Implementations may presize the table
+	 * once for the whole batch instead of checking the load factor per key.
+	 *
+	 * @param keys the keys to add
+	 * @param values the values, values[i] goes with keys[i]
+	 * @return the number of pairs that were added
+	 */
+	public default int addAll(K[] keys, V[] values) {
+		int added = 0;
+		for (int i = 0; i < keys.length; i++)
+			if (add(keys[i], values[i]))
+				added++;
+		return added;
+	}
+
+	/**
+	 * Looks up every key, storing the values in the parallel array. Keys
+	 * that are not found get null.
+	 *
+	 * @param keys the keys to look for
+	 * @param values filled in with the values, values[i] goes with keys[i]
+	 * @return the number of keys that were found
+	 */
+	public default int getAll(K[] keys, V[] values) {
+		int found = 0;
+		for (int i = 0; i < keys.length; i++) {
+			values[i] = getValue(keys[i]);
+			if (values[i] != null)
+				found++;
+		}
+		return found;
+	}
+
+	/**
+	 * Test whether the hash has every one of the keys.
+	 *
+	 * @param keys the keys to look for
+	 * @return true if all of them are there
+	 */
+	public default boolean containsAll(K[] keys) {
+		for (K key : keys)
+			if (!contains(key))
+				return false;
+		return true;
+	}
+
+	/**
+	 * Removes every one of the keys that is in the hash.
+	 *
+	 * @param keys the keys to remove
+	 * @return the number of keys that were found and removed
+	 */
+	public default int removeAll(K[] keys) {
+		int removed = 0;
+		for (K key : keys)
+			if (remove(key))
+				removed++;
+		return removed;
+	}
+
+	/**
+	 * Returns an Iterator of the keys in the dictionary, in whatever order
+	 * the implementation stores them. Use sortedIterator for ascending order.
 	 *
 	 * @return an instance of an Iterator<K> inner class
 	 */
 	public Iterator<K> iterator();
 
+	/**
+	 * Returns an Iterator of the keys in the dictionary, in ascending 
+	 * sorted order. The keys are copied into an array and sorted with
+	 * Arrays.parallelSort when this is called, so the cost is only paid
+	 * by callers that need the order. The keys must implement Comparable.
+	 *
+	 * @return an Iterator over the sorted keys
+	 */
+	public default Iterator<K> sortedIterator() {
+		return sortedIterator((Comparator<? super K>) (Comparator<?>) Comparator.naturalOrder());
+	}
+
+	/**
+	 * Returns an Iterator of the keys in the dictionary, sorted by the
+	 * given comparator, for keys that do not implement Comparable.
+	 *
+	 * @param comparator orders the keys
+	 * @return an Iterator over the sorted keys
+	 */
+	public default Iterator<K> sortedIterator(Comparator<? super K> comparator) {
+		Object[] keys = new Object[size()];
+		int n = 0;
+		for (K key : this) {
+			if (n == keys.length)
+				keys = Arrays.copyOf(keys, n * 2 + 1);
+			keys[n++] = key;
+		}
+		Arrays.parallelSort(keys, 0, n, (Comparator<Object>) comparator);
+		return ((List<K>) Arrays.asList(keys).subList(0, n)).iterator();
+	}
+
 }
@@ -0,0 +1,27 @@
+/**
+ * Decides when two keys are the same and what their hash is, for hashes whose
+ * keys should not use their own hashCode and compareTo methods. This lets a hash
+ * work on keys that do not implement Comparable, or match keys on only some of
+ * their fields, without wrapping every key in another object. Two keys that are
+ * equal must always have the same hash.
+ *
+ * @param <K> the type of key
+ */
+
+public interface HashStrategy<K> {
+
+	/**
+	 * Returns the hash of a key.
+	 * @param key the key to hash
+	 * @return the hash
+	 */
+	public int hashCode(K key);
+
+	/**
+	 * Tests whether two keys are the same.
+	 * @param a the first key
+	 * @param b the second key
+	 * @return true if the keys are equal
+	 */
+	public boolean equals(K a, K b);
+}
@@ -0,0 +1,298 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A doubly linked list implementing the ListI interface that also keeps a hash
+ * index from each object to the nodes holding it, so contains and remove by value
+ * take expected constant time instead of scanning the list. Iteration still runs
+ * through the links, in the order the objects are in the list.
+ *
+ * The index is an OpenHash, so objects are matched the same way as elsewhere in the
+ * list, with hashCode to find them and compareTo to confirm them. An object added
+ * more than once gets one node per copy, and the nodes holding equal objects are
+ * also linked to each other in list order, so the first and last copies are always
+ * at hand. Objects must not change in a way that affects hashCode or compareTo
+ * while they are in the list.
+ *
+ * @param <E> generics data type
+ */
+
+public class IndexedLinkedList<E> implements ListI<E> {
+
+	/**
+	 * a node of the list. sameNext and samePrev link the nodes holding equal objects.
+	 */
+
+	static class Node<E> {
+		E data;
+		Node<E> next, prev;
+		Node<E> sameNext, samePrev;
+
+		Node (E obj) {
+			data = obj;
+		}
+	}
+
+	/**
+	 * the first and last nodes holding equal objects
+	 */
+
+	static class Copies<E> {
+		Node<E> first, last;
+
+		Copies (Node<E> node) {
+			first = last = node;
+		}
+	}
+
+	/**
+	 * @param head head pointer of the list
+	 * @param tail tail pointer of the list
+	 * @param currentSize current size of the list
+	 * @param index maps each distinct object to the nodes holding it
+	 */
+
+	private Node<E> head;
+	private Node<E> tail;
+	private int currentSize;
+	private final OpenHash<E, Copies<E>> index;
+
+	/**
+	 * creates an empty list with a small index
+	 */
+
+	public IndexedLinkedList() {
+		this(16);
+	}
+
+	/**
+	 * creates an empty list
+	 * @param expected number of distinct objects to size the index for
+	 */
+
+	public IndexedLinkedList(int expected) {
+		index = new OpenHash<E, Copies<E>>(expected);
+	}
+
+	/**
+	 * Adds an object to the beginning of the list, and to the front of its copies.
+	 * @param obj the object to be added to the list
+	 */
+
+	public void addFirst(E obj) {
+		Node<E> node = new Node<E>(obj);
+		node.next = head;
+		if (head == null)
+			tail = node;
+		else
+			head.prev = node;
+		head = node;
+		currentSize++;
+		Copies<E> copies = index.getValue(obj);
+		if (copies == null)
+			index.add(obj, new Copies<E>(node));
+		else {
+			node.sameNext = copies.first;
+			copies.first.samePrev = node;
+			copies.first = node;
+		}
+	}
+
+	/**
+	 * Adds an object to the end of the list, and to the back of its copies.
+	 * @param obj the object to be added to the list
+	 */
+
+	public void addLast(E obj) {
+		Node<E> node = new Node<E>(obj);
+		node.prev = tail;
+		if (tail == null)
+			head = node;
+		else
+			tail.next = node;
+		tail = node;
+		currentSize++;
+		Copies<E> copies = index.getValue(obj);
+		if (copies == null)
+			index.add(obj, new Copies<E>(node));
+		else {
+			node.samePrev = copies.last;
+			copies.last.sameNext = node;
+			copies.last = node;
+		}
+	}
+
+	/**
+	 * Removes the first Object in the list and returns it. Returns null if the list is empty.
+	 * @return the data of the first node in the list
+	 */
+
+	public E removeFirst() {
+		if (head == null)
+			return null;
+		E obj = head.data;
+		unlink(head);
+		return obj;
+	}
+
+	/**
+	 * Removes the last Object in the list and returns it. Returns null if the list is empty.
+	 * @return data of last node in the list
+	 */
+
+	public E removeLast() {
+		if (tail == null)
+			return null;
+		E obj = tail.data;
+		unlink(tail);
+		return obj;
+	}
+
+	/**
+	 * Removes the first Object in the list that is the same as obj. The index gives
+	 * the first node holding it directly, so nothing is scanned.
+	 * @param obj the object to remove
+	 * @return true if obj was found and removed, false if not
+	 */
+
+	public boolean remove(E obj) {
+		Copies<E> copies = index.getValue(obj);
+		if (copies == null)
+			return false;
+		unlink(copies.first);
+		return true;
+	}
+
+	/**
+	 * takes a node out of the list and out of its copies, dropping the object from
+	 * the index when it was the last copy
+	 * @param node a node of this list
+	 */
+
+	private void unlink(Node<E> node) {
+		if (node.prev == null)
+			head = node.next;
+		else
+			node.prev.next = node.next;
+		if (node.next == null)
+			tail = node.prev;
+		else
+			node.next.prev = node.prev;
+		currentSize--;
+
+		if (node.samePrev == null && node.sameNext == null) {
+			index.remove(node.data);
+			return;
+		}
+		Copies<E> copies = index.getValue(node.data);
+		if (node.samePrev == null)
+			copies.first = node.sameNext;
+		else
+			node.samePrev.sameNext = node.sameNext;
+		if (node.sameNext == null)
+			copies.last = node.samePrev;
+		else
+			node.sameNext.samePrev = node.samePrev;
+	}
+
+	/**
+	 * Returns the first Object in the list, but does not remove it. Returns null if the list is empty.
+	 * @return data of first node in the list
+	 */
+
+	public E peekFirst() {
+		if (head == null)
+			return null;
+		return head.data;
+	}
+
+	/**
+	 * Returns the last Object in the list, but does not remove it. Returns null if the list is empty.
+	 * @return data of last node in the list
+	 */
+
+	public E peekLast() {
+		if (tail == null)
+			return null;
+		return tail.data;
+	}
+
+	/**
+	 * Returns the list to an empty state, clearing the index as well.
+	 */
+
+	public void makeEmpty() {
+		head = tail = null;
+		currentSize = 0;
+		index.makeEmpty();
+	}
+
+	/**
+	 * Test whether the list is empty.
+	 */
+
+	public boolean isEmpty() {
+		return head == null;
+	}
+
+	/**
+	 * Test whether the list is full. Always false, the list grows as needed.
+	 */
+
+	public boolean isFull() {
+		return false;
+	}
+
+	/**
+	 * Returns the number of Objects currently in the list.
+	 * @return current number of objects in the list
+	 */
+
+	public int size() {
+		return currentSize;
+	}
+
+	/**
+	 * Test whether the list contains an object with one lookup in the index.
+	 * @param obj the object to look for
+	 * @return true if the object is found
+	 */
+
+	public boolean contains(E obj) {
+		return index.contains(obj);
+	}
+
+	/**
+	 * Returns an Iterator of the values in the list, presented in the same order as the list.
+	 * @return iterator helper method
+	 */
+
+	public Iterator<E> iterator() {
+		return new IteratorHelper();
+	}
+
+	/**
+	 * follows the next links from the head
+	 * @param current the next node to return
+	 */
+
+	class IteratorHelper implements Iterator<E> {
+		Node<E> current;
+
+		public IteratorHelper() {
+			current = head;
+		}
+
+		public boolean hasNext() {
+			return current != null;
+		}
+
+		public E next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			E tmp = current.data;
+			current = current.next;
+			return tmp;
+		}
+	}
+}
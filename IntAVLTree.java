@@ -0,0 +1,419 @@
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * An AVL tree from int keys to object values. It follows the AVLTreeI contract but
+ * takes the key as a primitive, so no Integer is ever created and keys are compared
+ * with < and > instead of compareTo. There are no node objects: a node is an index
+ * into parallel arrays of keys, values, child indexes and heights, and index 0 is a
+ * shared empty node with height 0. Removed nodes go on a free list and are reused.
+ *
+ * @param <V> The value for entries in the tree
+ */
+
+public class IntAVLTree<V> {
+
+	/**
+	 * deepest path an AVL tree with up to 2^31 nodes can have
+	 */
+
+	private static final int MAX_DEPTH = 64;
+
+	/**
+	 * @param keys key of each node
+	 * @param values value of each node
+	 * @param left index of each node's left child, 0 for none. Links the free list for free nodes.
+	 * @param right index of each node's right child, 0 for none
+	 * @param heights height of each node, 1 for a leaf and 0 for the empty node
+	 * @param root index of the root node, 0 when the tree is empty
+	 * @param used number of node indexes handed out so far, including the empty node
+	 * @param free first node on the free list, 0 when the list is empty
+	 * @param currentSize number of keys in the tree
+	 * @param modCount number of changes made, used to make iterators fail fast
+	 * @param path the nodes from the root down to the change, reused by every add and remove
+	 */
+
+	int[] keys;
+	Object[] values;
+	int[] left;
+	int[] right;
+	byte[] heights;
+	int root;
+	int used;
+	int free;
+	int currentSize;
+	int modCount;
+	private final int[] path = new int[MAX_DEPTH];
+
+	/**
+	 * creates an empty tree with room for 16 keys
+	 */
+
+	public IntAVLTree() {
+		this(16);
+	}
+
+	/**
+	 * creates an empty tree
+	 * @param capacity number of keys to make room for up front
+	 */
+
+	public IntAVLTree(int capacity) {
+		allocate(Math.max(capacity, 1) + 1);
+		used = 1;
+		root = 0;
+		free = 0;
+		currentSize = 0;
+	}
+
+	/**
+	 * allocates fresh node arrays
+	 * @param size number of node indexes, including the empty node
+	 */
+
+	private void allocate(int size) {
+		keys = new int[size];
+		values = new Object[size];
+		left = new int[size];
+		right = new int[size];
+		heights = new byte[size];
+	}
+
+	/**
+	 * takes a node off the free list, or the next unused index, growing the arrays if full
+	 * @param key the key for the node
+	 * @param value the value for the node
+	 * @return the index of the new leaf node
+	 */
+
+	private int newNode(int key, V value) {
+		int n;
+		if (free != 0) {
+			n = free;
+			free = left[n];
+		}
+		else {
+			if (used == keys.length) {
+				int size = keys.length * 2;
+				keys = Arrays.copyOf(keys, size);
+				values = Arrays.copyOf(values, size);
+				left = Arrays.copyOf(left, size);
+				right = Arrays.copyOf(right, size);
+				heights = Arrays.copyOf(heights, size);
+			}
+			n = used++;
+		}
+		keys[n] = key;
+		values[n] = value;
+		left[n] = 0;
+		right[n] = 0;
+		heights[n] = 1;
+		return n;
+	}
+
+	/**
+	 * puts a node on the free list
+	 * @param n the node to free
+	 */
+
+	private void freeNode(int n) {
+		values[n] = null;
+		right[n] = 0;
+		heights[n] = 0;
+		left[n] = free;
+		free = n;
+	}
+
+	/**
+	 * recomputes the height of a node from its children
+	 * @param n the node
+	 */
+
+	private void update(int n) {
+		heights[n] = (byte) (Math.max(heights[left[n]], heights[right[n]]) + 1);
+	}
+
+	/**
+	 * @param n the subtree root
+	 * @return the new subtree root, the old left child
+	 */
+
+	private int rightRotate(int n) {
+		int l = left[n];
+		left[n] = right[l];
+		right[l] = n;
+		update(n);
+		update(l);
+		return l;
+	}
+
+	/**
+	 * @param n the subtree root
+	 * @return the new subtree root, the old right child
+	 */
+
+	private int leftRotate(int n) {
+		int r = right[n];
+		right[n] = left[r];
+		left[r] = n;
+		update(n);
+		update(r);
+		return r;
+	}
+
+	/**
+	 * updates the node's height and does a single or double rotation if its
+	 * children's heights differ by more than one
+	 * @param n the subtree root
+	 * @return the root of the balanced subtree
+	 */
+
+	private int balance(int n) {
+		update(n);
+		int diff = heights[left[n]] - heights[right[n]];
+		if (diff > 1) {
+			if (heights[left[left[n]]] < heights[right[left[n]]])
+				left[n] = leftRotate(left[n]);
+			return rightRotate(n);
+		}
+		if (diff < -1) {
+			if (heights[right[right[n]]] < heights[left[right[n]]])
+				right[n] = rightRotate(right[n]);
+			return leftRotate(n);
+		}
+		return n;
+	}
+
+	/**
+	 * Walks back up a recorded path balancing each node and linking a rotated
+	 * subtree into its parent. Stops once a subtree's height comes out unchanged,
+	 * since nothing above it can be affected.
+	 * @param path nodes from the root down
+	 * @param depth number of nodes in path
+	 */
+
+	private void retrace(int[] path, int depth) {
+		for (int i = depth - 1; i >= 0; i--) {
+			int n = path[i];
+			int oldHeight = heights[n];
+			int m = balance(n);
+			if (m != n) {
+				if (i == 0)
+					root = m;
+				else if (left[path[i - 1]] == n)
+					left[path[i - 1]] = m;
+				else
+					right[path[i - 1]] = m;
+			}
+			if (heights[m] == oldHeight)
+				return;
+		}
+	}
+
+	/**
+	 * Adds the key as a new leaf, then retraces. Duplicate keys are ignored.
+	 * @param key the key to add
+	 * @param value the value associated with the key
+	 */
+
+	public void add(int key, V value) {
+		int depth = 0;
+		int n = root;
+		while (n != 0) {
+			if (key == keys[n])
+				return;
+			path[depth++] = n;
+			n = (key < keys[n]) ? left[n] : right[n];
+		}
+		n = newNode(key, value);
+		if (depth == 0)
+			root = n;
+		else if (key < keys[path[depth - 1]])
+			left[path[depth - 1]] = n;
+		else
+			right[path[depth - 1]] = n;
+		currentSize++;
+		modCount++;
+		retrace(path, depth);
+	}
+
+	/**
+	 * Removes the key. A node with two children takes its successor's key and
+	 * value and the successor's node is spliced out instead, then the path above
+	 * the spliced node is retraced.
+	 * @param key the key to remove
+	 * @return true if the key was found and removed
+	 */
+
+	public boolean remove(int key) {
+		int depth = 0;
+		int n = root;
+		while (n != 0 && key != keys[n]) {
+			path[depth++] = n;
+			n = (key < keys[n]) ? left[n] : right[n];
+		}
+		if (n == 0)
+			return false;
+		int target = n;
+		if (left[n] != 0 && right[n] != 0) {
+			path[depth++] = n;
+			n = right[n];
+			while (left[n] != 0) {
+				path[depth++] = n;
+				n = left[n];
+			}
+			keys[target] = keys[n];
+			values[target] = values[n];
+		}
+		int child = (left[n] != 0) ? left[n] : right[n];
+		if (depth == 0)
+			root = child;
+		else if (left[path[depth - 1]] == n)
+			left[path[depth - 1]] = child;
+		else
+			right[path[depth - 1]] = child;
+		freeNode(n);
+		currentSize--;
+		modCount++;
+		retrace(path, depth);
+		return true;
+	}
+
+	/**
+	 * @param key the key to look for
+	 * @return the node holding the key, 0 if not found
+	 */
+
+	private int find(int key) {
+		int n = root;
+		while (n != 0 && key != keys[n])
+			n = (key < keys[n]) ? left[n] : right[n];
+		return n;
+	}
+
+	/**
+	 * Tests whether the tree contains the key
+	 * @param key the key to look for
+	 * @return whether the key is found
+	 */
+
+	public boolean contains(int key) {
+		return find(key) != 0;
+	}
+
+	/**
+	 * Get the value associated with a given key
+	 * @param key the key to get the value for
+	 * @return the current value, null if the key is not found
+	 */
+
+	public V getValue(int key) {
+		return (V) values[find(key)];
+	}
+
+	/**
+	 * @return current size of tree
+	 */
+
+	public int size() {
+		return currentSize;
+	}
+
+	/**
+	 * @return true if tree is empty, false if not
+	 */
+
+	public boolean isEmpty() {
+		return currentSize == 0;
+	}
+
+	/**
+	 * @return height of tree, read from the root
+	 */
+
+	public int height() {
+		if (root == 0)
+			return 0;
+		return heights[root] - 1;
+	}
+
+	/**
+	 * Returns an iterator of the keys in ascending order that hands out primitive
+	 * ints through nextInt, so iterating does not box.
+	 * @return iterator helper method
+	 */
+
+	public PrimitiveIterator.OfInt iterator() {
+		return new IteratorHelper();
+	}
+
+	/**
+	 * In order traversal with an explicit stack of node indexes. Adding or removing
+	 * keys while iterating makes nextInt throw ConcurrentModificationException.
+	 * @param stack the path of nodes whose keys have not been returned yet
+	 * @param top number of nodes on the stack
+	 * @param expectedModCount modCount when the iterator was created
+	 */
+
+	class IteratorHelper implements PrimitiveIterator.OfInt {
+		int[] stack;
+		int top;
+		int expectedModCount;
+
+		public IteratorHelper() {
+			stack = new int[MAX_DEPTH];
+			top = 0;
+			expectedModCount = modCount;
+			pushLeft(root);
+		}
+
+		private void pushLeft(int n) {
+			for (; n != 0; n = left[n])
+				stack[top++] = n;
+		}
+
+		public boolean hasNext() {
+			return top > 0;
+		}
+
+		public int nextInt() {
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			if (!hasNext())
+				throw new NoSuchElementException();
+			int n = stack[--top];
+			pushLeft(right[n]);
+			return keys[n];
+		}
+	}
+
+	/**
+	 * calls print method and sends root as parameter
+	 */
+
+	public void print() {
+		print(root, 0);
+	}
+
+	/**
+	 * Recursively prints out the tree in order, with one period per level below the root
+	 * @param n the node to print
+	 * @param depth number of levels below the root n is at
+	 */
+
+	private void print(int n, int depth) {
+		if (n == 0)
+			return;
+		print(left[n], depth + 1);
+		if (n == root)
+			System.out.println("Key: " + keys[n] + " Value: " + values[n] + " (root)");
+		else {
+			for (int i = 0; i < depth; i++)
+				System.out.print(".");
+			System.out.println("Key: " + keys[n] + " Value: " + values[n]);
+		}
+		print(right[n], depth + 1);
+	}
+}
@@ -0,0 +1,320 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * A hash from int keys to object values. It follows the HashI contract but takes
+ * the key as a primitive, so no Integer is ever created and keys are compared with
+ * == instead of compareTo. The table layout is the same as OpenHash: flat parallel
+ * arrays with Robin Hood probing and backward shift deletion.
+ *
+ * @param <V> The value for entries in the hash
+ */
+
+public class IntHash<V> {
+
+	/**
+	 * @param hashes cached hash of the key in each slot, 0 when the slot is empty
+	 * @param keys key stored in each slot
+	 * @param values value stored in each slot
+	 * @param tableSize number of slots, always a power of two
+	 * @param mask tableSize - 1, used in place of the modulo
+	 * @param numElements current number of elements in the hash
+	 * @param maxLoadFactor max load the hash can reach before automatically growing
+	 */
+
+	int[] hashes;
+	int[] keys;
+	Object[] values;
+	int tableSize;
+	int mask;
+	int numElements;
+	double maxLoadFactor;
+
+	/**
+	 * creates the slot arrays, rounding tableSize up to the next power of two
+	 * @param tableSize requested initial size of the table
+	 */
+
+	public IntHash(int tableSize) {
+		maxLoadFactor = 0.75;
+		numElements = 0;
+		allocate(OpenHash.capacityFor(tableSize));
+	}
+
+	/**
+	 * allocates fresh slot arrays of the given power of two size
+	 * @param size new number of slots
+	 */
+
+	private void allocate(int size) {
+		tableSize = size;
+		mask = size - 1;
+		hashes = new int[size];
+		keys = new int[size];
+		values = new Object[size];
+	}
+
+	/**
+	 * mixes the bits of the key, never returning 0 since 0 marks an empty slot
+	 * @param key the key to hash
+	 * @return the spread hash
+	 */
+
+	static int hash(int key) {
+		int h = key * 0x9E3779B9;
+		h ^= (h >>> 16);
+		return (h == 0) ? 1 : h;
+	}
+
+	/**
+	 * @param hash the cached hash of the entry
+	 * @param slot the slot the entry is in
+	 * @return how far the entry sits from the slot its hash wants
+	 */
+
+	private int distance(int hash, int slot) {
+		return (slot - (hash & mask)) & mask;
+	}
+
+	/**
+	 * finds the slot holding the key
+	 * @param key the key to look for
+	 * @return the slot, or -1 if the key is not in the hash
+	 */
+
+	private int find(int key) {
+		int h = hash(key);
+		int slot = h & mask;
+		for (int dist = 0; ; dist++) {
+			int sh = hashes[slot];
+			if (sh == 0 || distance(sh, slot) < dist)
+				return -1;
+			if (keys[slot] == key && sh == h)
+				return slot;
+			slot = (slot + 1) & mask;
+		}
+	}
+
+	/**
+	 * Adds the given key/value pair. Duplicate keys are rejected.
+	 * @param key the key to add
+	 * @param value the value associated with the key
+	 * @return true if the key/value are added to the hash
+	 */
+
+	public boolean add(int key, V value) {
+		if (find(key) != -1)
+			return false;
+		if (numElements + 1 > maxLoadFactor * tableSize || numElements + 1 >= tableSize)
+			resize(tableSize * 2);
+		insert(hash(key), key, value);
+		numElements++;
+		return true;
+	}
+
+	/**
+	 * places an entry known not to be in the table using Robin Hood probing
+	 * @param h the spread hash of the key
+	 * @param key the key to place
+	 * @param value the value to place
+	 */
+
+	private void insert(int h, int key, Object value) {
+		int slot = h & mask;
+		int dist = 0;
+		while (true) {
+			int sh = hashes[slot];
+			if (sh == 0) {
+				hashes[slot] = h;
+				keys[slot] = key;
+				values[slot] = value;
+				return;
+			}
+			int existing = distance(sh, slot);
+			if (existing < dist) {
+				int k = keys[slot];
+				Object v = values[slot];
+				hashes[slot] = h;
+				keys[slot] = key;
+				values[slot] = value;
+				h = sh;
+				key = k;
+				value = v;
+				dist = existing;
+			}
+			slot = (slot + 1) & mask;
+			dist++;
+		}
+	}
+
+	/**
+	 * removes the key and shifts the rest of its probe run back one slot
+	 * @param key the key to remove
+	 * @return true if the key was found and removed
+	 */
+
+	public boolean remove(int key) {
+		int slot = find(key);
+		if (slot == -1)
+			return false;
+		int next = (slot + 1) & mask;
+		while (hashes[next] != 0 && distance(hashes[next], next) != 0) {
+			hashes[slot] = hashes[next];
+			keys[slot] = keys[next];
+			values[slot] = values[next];
+			slot = next;
+			next = (next + 1) & mask;
+		}
+		hashes[slot] = 0;
+		values[slot] = null;
+		numElements--;
+		return true;
+	}
+
+	/**
+	 * Change the value associated with an existing key.
+	 * @param key the key to change
+	 * @param value the new value to assign to the key
+	 * @return true if the key was found, false if not
+	 */
+
+	public boolean changeValue(int key, V value) {
+		int slot = find(key);
+		if (slot == -1)
+			return false;
+		values[slot] = value;
+		return true;
+	}
+
+	/**
+	 * @param key the key to look for
+	 * @return true if the key is in the hash
+	 */
+
+	public boolean contains(int key) {
+		return find(key) != -1;
+	}
+
+	/**
+	 * @param key the key to find the value for
+	 * @return the value associated with the key, null if not found
+	 */
+
+	public V getValue(int key) {
+		int slot = find(key);
+		if (slot == -1)
+			return null;
+		return (V) values[slot];
+	}
+
+	/**
+	 * @return the number of key/value pairs currently stored in the dictionary
+	 */
+
+	public int size() {
+		return numElements;
+	}
+
+	/**
+	 * @return true if there are no entries in the hash
+	 */
+
+	public boolean isEmpty() {
+		return numElements == 0;
+	}
+
+	/**
+	 * clears every slot, keeping the current table size
+	 */
+
+	public void makeEmpty() {
+		Arrays.fill(hashes, 0);
+		Arrays.fill(values, null);
+		numElements = 0;
+	}
+
+	/**
+	 * @return the current load factor of the dictionary (lambda)
+	 */
+
+	public double loadFactor() {
+		return (double) numElements / tableSize;
+	}
+
+	/**
+	 * @return maxLoadFactor
+	 */
+
+	public double getMaxLoadFactor() {
+		return maxLoadFactor;
+	}
+
+	/**
+	 * Set the max load factor at which the table grows
+	 */
+
+	public void setMaxLoadFActor(double loadfactor) {
+		maxLoadFactor = loadfactor;
+	}
+
+	/**
+	 * moves every entry into new slot arrays, reusing the cached hashes. The table
+	 * always keeps at least one empty slot, whatever the max load factor, so probes end.
+	 * @param newSize the size of the new dictionary
+	 */
+
+	public void resize(int newSize) {
+		int size = OpenHash.capacityFor(newSize);
+		while ((numElements > maxLoadFactor * size || numElements >= size) && size < (1 << 30))
+			size <<= 1;
+		int[] oldHashes = hashes;
+		int[] oldKeys = keys;
+		Object[] oldValues = values;
+		allocate(size);
+		for (int i = 0; i < oldHashes.length; i++)
+			if (oldHashes[i] != 0)
+				insert(oldHashes[i], oldKeys[i], oldValues[i]);
+	}
+
+	/**
+	 * Returns an iterator of the keys in slot order that hands out primitive ints
+	 * through nextInt, so iterating does not box.
+	 * @return iterator helper method
+	 */
+
+	public PrimitiveIterator.OfInt iterator() {
+		return new IteratorHelper();
+	}
+
+	/**
+	 * walks the slot array, skipping empty slots
+	 * @param slot the next slot to look at
+	 */
+
+	class IteratorHelper implements PrimitiveIterator.OfInt {
+		int slot;
+
+		public IteratorHelper() {
+			slot = advance(0);
+		}
+
+		private int advance(int from) {
+			while (from < tableSize && hashes[from] == 0)
+				from++;
+			return from;
+		}
+
+		public boolean hasNext() {
+			return slot < tableSize;
+		}
+
+		public int nextInt() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			int key = keys[slot];
+			slot = advance(slot + 1);
+			return key;
+		}
+	}
+}
@@ -1,8 +1,11 @@
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
 /**
- * Linked list program able to perform multiple linked list operations
+ * Linked list program able to perform multiple linked list operations. The list is
+ * doubly linked and keeps a tail pointer, so adding, peeking and removing at either
+ * end are constant time, and a node can be unlinked in place through the iterator.
  * @author Brandon Reiley
  * 
  * @param <E> generics data type
@@ -18,10 +21,12 @@ public class LinkedList<E> implements ListI<E> {
 	class Node<E> {
 		E data;
 		Node <E> next;
+		Node <E> prev;
 
 		public Node (E obj) {
 			data = obj;
 			next = null;
+			prev = null;
 		}
 	}
 
@@ -30,11 +35,43 @@ public class LinkedList<E> implements ListI<E> {
 	 * @param head head pointer of linked list
 	 * @param tail tail pointer of linked list
 	 * @param currentSize current size of linked list
+	 * @param comparator decides whether two objects are the same, null to use their compareTo method
 	 */
 
 	private Node<E> head;
 	private Node<E> tail;
 	private int currentSize;
+	private final Comparator<? super E> comparator;
+
+	/**
+	 * creates an empty list that matches objects with their compareTo method
+	 */
+
+	public LinkedList() {
+		this(null);
+	}
+
+	/**
+	 * creates an empty list that matches objects with a comparator, so they do not
+	 * have to implement Comparable
+	 * @param comparator decides whether two objects are the same, null to use their compareTo method
+	 */
+
+	public LinkedList(Comparator<? super E> comparator) {
+		this.comparator = comparator;
+	}
+
+	/**
+	 * @param a an object in the list
+	 * @param b the object being looked for
+	 * @return true if the comparator, or a's compareTo method, says they are the same
+	 */
+
+	private boolean same(E a, E b) {
+		if (comparator == null)
+			return ((Comparable<E>) a).compareTo(b) == 0;
+		return comparator.compare(a, b) == 0;
+	}
 
 	/**
 	 * Adds an object to the beginning of the list.
@@ -46,30 +83,30 @@ public class LinkedList<E> implements ListI<E> {
 	public void addFirst(E obj) {
 		Node <E> newNode = new Node <E> (obj);
 		newNode.next = head;
+		if (head == null)
+			tail = newNode;
+		else
+			head.prev = newNode;
 		head = newNode;
 		currentSize++;
 	}
 
 	/**
-	 * Adds an object to the end of the list. Iterates through list using temporary variable tmp until reaches end of list.
+	 * Adds an object to the end of the list, linking it after the tail.
 	 * @param obj the object to be added to the list
-	 * @param newNode new node variable to be added to the beginning of the list
-	 * @param tmp sets a temporary variable to head to iterate through list
+	 * @param newNode new node variable to be added to the end of the list
 	 */
 
 	public void addLast(E obj) {
 		Node<E> newNode = new Node <E> (obj);
 		if (head == null) {
-			head = newNode;
+			head = tail = newNode;
 			currentSize++;
 			return;
 		}
-		Node<E> tmp = head;
-
-		while (tmp.next != null) {
-			tmp = tmp.next;
-		}
-		tmp.next = newNode;
+		newNode.prev = tail;
+		tail.next = newNode;
+		tail = newNode;
 		currentSize++;
 	}
 
@@ -87,17 +124,18 @@ public class LinkedList<E> implements ListI<E> {
 
 		if (head == tail)
 			head = tail = null;
-		else
+		else {
 			head = head.next;
+			head.prev = null;
+		}
 
 		currentSize--;
 		return tmp;
 	}
 
 	/**
-	 * Removes the last Object in the list and returns it. Returns null if the list is empty.
-	 * @param current sets a variable current to head and iterates until finds last node in list
-	 * @param previous sets variable equal to current to find last node in list
+	 * Removes the last Object in the list and returns it, stepping the tail back through its prev link. Returns null if the list is empty.
+	 * @param tmp the data of the tail node
 	 * @return data of last node in the list
 	 */
 
@@ -107,17 +145,46 @@ public class LinkedList<E> implements ListI<E> {
 		if (head == tail)
 			return removeFirst();
 
-		Node<E> current = head;
-		Node<E> previous = null;
+		E tmp = tail.data;
+		tail = tail.prev;
+		tail.next = null;
+		currentSize--;
+		return tmp;
+	}
+
+	/**
+	 * Removes the first Object in the list that is the same as obj, using the comparator or the object's compareTo method.
+	 * @param obj the object to remove
+	 * @param current sets a variable current to head and iterates until it finds obj
+	 * @return true if obj was found and removed, false if not
+	 */
 
-		while (current.next != null) {
-			previous = current;
-			current = current.next;
+	public boolean remove(E obj) {
+		for (Node<E> current = head; current != null; current = current.next) {
+			if (same(current.data, obj)) {
+				unlink(current);
+				return true;
+			}
 		}
-		previous.next = null;
-		tail = previous;
+		return false;
+	}
+
+	/**
+	 * Takes a node out of the list in constant time by pointing its neighbors at each other.
+	 * @param node a node that is in this list
+	 */
+
+	private void unlink(Node<E> node) {
+		if (node.prev == null)
+			head = node.next;
+		else
+			node.prev.next = node.next;
+		if (node.next == null)
+			tail = node.prev;
+		else
+			node.next.prev = node.prev;
+		node.next = node.prev = null;
 		currentSize--;
-		return current.data;
 	}
 
 	/**
@@ -134,20 +201,14 @@ public class LinkedList<E> implements ListI<E> {
 
 	/**
 	 * Returns the last Object in the list, but does not remove it. Returns null if the list is empty.
-	 * @param tmp sets temporary variable tmp to head and iterates through list to find last node in list
 	 * @return data of last node in the list
 	 */
 
 	public E peekLast() {
-		if (head == null)
+		if (tail == null)
 			return null;
 
-		Node<E> tmp = head;
-
-		while (tmp.next != null)
-			tmp = tmp.next;
-
-		return tmp.data;
+		return tail.data;
 	}
 
 	/**
@@ -185,7 +246,7 @@ public class LinkedList<E> implements ListI<E> {
 	}
 
 	/**
-	 * Test whether the list contains an object. This will use the object's compareTo method to determine whether two objects are the same.
+	 * Test whether the list contains an object. This will use the comparator, or the object's compareTo method, to determine whether two objects are the same.
 	 * @param tmp sets temporary variable tmp to head and compares it to obj to see if they are the same
 	 * @return true if tmp and obj are the same object and false once a non equal object's are found
 	 */
@@ -194,7 +255,7 @@ public class LinkedList<E> implements ListI<E> {
 		Node<E> tmp = head;
 
 		while (tmp != null) {
-			if (((Comparable<E>)tmp.data).compareTo(obj) == 0)
+			if (same(tmp.data, obj))
 				return true;
 
 			tmp = tmp.next;
@@ -214,12 +275,15 @@ public class LinkedList<E> implements ListI<E> {
 	/**
 	 * Iterator helper class that iterates through list to see if there is a next node
 	 * @param index sets variable index to head and runs iterator helper method
+	 * @param last the node returned by the last call to next, null if there is none or it was removed
 	 */
 
 	class IteratorHelper implements Iterator<E> {
 		Node<E> index;
+		Node<E> last;
 		public IteratorHelper() {
 			index = head;
+			last = null;
 		}
 
 		/**
@@ -241,8 +305,20 @@ public class LinkedList<E> implements ListI<E> {
 			if (!hasNext())
 				throw new NoSuchElementException();
 			E tmp = index.data;
+			last = index;
 			index = index.next;
 			return tmp;
 		}
+
+		/**
+		 * Removes the element last returned by next in constant time, without searching the list.
+		 */
+
+		public void remove() {
+			if (last == null)
+				throw new IllegalStateException();
+			unlink(last);
+			last = null;
+		}
 	}
 }
@@ -0,0 +1,581 @@
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An implementation of the HashI interface that keeps its entries outside the Java
+ * heap. Keys and values are encoded with a Codec into records appended to direct
+ * ByteBuffer chunks (the arena), and an open addressed index, also in direct
+ * buffers, maps each key's hash to the offset of its record. The heap only holds
+ * the few buffers, so the garbage collector never sees individual entries, no
+ * matter how many there are.
+ *
+ * The index uses the same Robin Hood probing and backward shift deletion as OpenHash.
+ * Each index slot is 16 bytes: the cached hash (0 when empty), 4 unused bytes and
+ * the 8 byte offset of the record. A record is a 12 byte header holding the key
+ * length, the value length and the room reserved for the value, followed by the key
+ * bytes and the value bytes. Keys are hashed and matched by their encoded bytes,
+ * never by hashCode or compareTo.
+ *
+ * Removed records and values that outgrew their room are left in the arena as
+ * garbage. The arena is compacted when it is resized and more than half of it is
+ * garbage, or when compact is called.
+ *
+ * @param <K> The key for entries in the hash
+ * @param <V> The value for entries in the hash
+ */
+
+public class OffHeapHash<K, V> implements HashI<K, V> {
+
+	/**
+	 * @param CHUNK_BITS arena chunks hold at most 2^CHUNK_BITS bytes
+	 * @param INDEX_CHUNK_BITS index chunks hold at most 2^INDEX_CHUNK_BITS slots
+	 * @param SLOT_BYTES size of an index slot
+	 * @param HEADER_BYTES size of a record header
+	 */
+
+	static final int CHUNK_BITS = 30;
+	static final int INDEX_CHUNK_BITS = 26;
+	static final int SLOT_BYTES = 16;
+	static final int HEADER_BYTES = 12;
+
+	/**
+	 * @param keyCodec encodes the keys
+	 * @param valueCodec encodes the values
+	 * @param index direct buffers holding the slots
+	 * @param tableSize number of slots, always a power of two
+	 * @param mask tableSize - 1
+	 * @param arena direct buffers holding the records
+	 * @param end offset where the next record will be written, chunk number in the high bits
+	 * @param garbage bytes of the arena taken by dead records
+	 * @param scratch buffer keys are encoded into for lookups
+	 * @param scratchLength encoded length of the key in scratch
+	 * @param scratchHash hash of the encoded key in scratch, set by find
+	 * @param numElements current number of elements in the hash
+	 * @param maxLoadFactor max load the hash can reach before automatically growing
+	 */
+
+	final Codec<K> keyCodec;
+	final Codec<V> valueCodec;
+	ByteBuffer[] index;
+	int tableSize;
+	int mask;
+	ByteBuffer[] arena;
+	long end;
+	long garbage;
+	ByteBuffer scratch;
+	int scratchLength;
+	int scratchHash;
+	int numElements;
+	double maxLoadFactor;
+
+	/**
+	 * creates the index and the first arena chunk, which is capped at 2^CHUNK_BITS bytes
+	 * @param tableSize requested initial number of index slots
+	 * @param keyCodec encodes the keys
+	 * @param valueCodec encodes the values
+	 */
+
+	public OffHeapHash(int tableSize, Codec<K> keyCodec, Codec<V> valueCodec) {
+		this.keyCodec = keyCodec;
+		this.valueCodec = valueCodec;
+		maxLoadFactor = 0.75;
+		numElements = 0;
+		scratch = ByteBuffer.allocateDirect(64);
+		allocateIndex(OpenHash.capacityFor(tableSize));
+		arena = new ByteBuffer[] { ByteBuffer.allocateDirect((int) Math.min(1L << CHUNK_BITS, Math.max(1024, (long) tableSize * 32))) };
+		end = 0;
+		garbage = 0;
+	}
+
+	/**
+	 * allocates an empty index of the given power of two number of slots
+	 * @param size number of slots
+	 */
+
+	private void allocateIndex(int size) {
+		tableSize = size;
+		mask = size - 1;
+		int perChunk = 1 << INDEX_CHUNK_BITS;
+		int chunks = (size + perChunk - 1) / perChunk;
+		index = new ByteBuffer[chunks];
+		for (int i = 0; i < chunks; i++)
+			index[i] = ByteBuffer.allocateDirect(Math.min(size, perChunk) * SLOT_BYTES);
+	}
+
+	/**
+	 * @param slot the slot to read
+	 * @return the cached hash in the slot, 0 if empty
+	 */
+
+	private int slotHash(int slot) {
+		return index[slot >>> INDEX_CHUNK_BITS].getInt((slot & ((1 << INDEX_CHUNK_BITS) - 1)) * SLOT_BYTES);
+	}
+
+	/**
+	 * @param slot the slot to read
+	 * @return the record offset in the slot
+	 */
+
+	private long slotRecord(int slot) {
+		return index[slot >>> INDEX_CHUNK_BITS].getLong((slot & ((1 << INDEX_CHUNK_BITS) - 1)) * SLOT_BYTES + 8);
+	}
+
+	/**
+	 * @param slot the slot to write
+	 * @param hash the hash to cache, 0 to empty the slot
+	 * @param record the record offset
+	 */
+
+	private void setSlot(int slot, int hash, long record) {
+		ByteBuffer chunk = index[slot >>> INDEX_CHUNK_BITS];
+		int pos = (slot & ((1 << INDEX_CHUNK_BITS) - 1)) * SLOT_BYTES;
+		chunk.putInt(pos, hash);
+		chunk.putLong(pos + 8, record);
+	}
+
+	/**
+	 * @param record a record offset
+	 * @return the arena chunk holding the record
+	 */
+
+	private ByteBuffer chunk(long record) {
+		return arena[(int) (record >>> CHUNK_BITS)];
+	}
+
+	/**
+	 * @param record a record offset
+	 * @return the position of the record within its chunk
+	 */
+
+	private int position(long record) {
+		return (int) (record & ((1L << CHUNK_BITS) - 1));
+	}
+
+	/**
+	 * @param hash the cached hash of the entry
+	 * @param slot the slot the entry is in
+	 * @return how far the entry sits from the slot its hash wants
+	 */
+
+	private int distance(int hash, int slot) {
+		return (slot - (hash & mask)) & mask;
+	}
+
+	/**
+	 * encodes a key into scratch, growing scratch if needed
+	 * @param key the key to encode
+	 * @return the encoded length
+	 */
+
+	private int encodeKey(K key) {
+		int length = keyCodec.size(key);
+		if (length > scratch.capacity())
+			scratch = ByteBuffer.allocateDirect(Math.max(length, scratch.capacity() * 2));
+		keyCodec.write(scratch, 0, key);
+		scratchLength = length;
+		return length;
+	}
+
+	/**
+	 * hashes the encoded key in scratch, so keys with the same bytes always get the
+	 * same hash whatever their hashCode says. Never returns 0, since 0 marks an empty slot.
+	 * @param length the encoded length of the key in scratch
+	 * @return the spread hash
+	 */
+
+	private int hashKey(int length) {
+		long h = length;
+		int i = 0;
+		for (; i + 8 <= length; i += 8)
+			h = (h ^ scratch.getLong(i)) * 0x9E3779B97F4A7C15L;
+		for (; i < length; i++)
+			h = (h ^ scratch.get(i)) * 0x9E3779B97F4A7C15L;
+		int mixed = (int) (h ^ (h >>> 32));
+		mixed ^= (mixed >>> 16);
+		return (mixed == 0) ? 1 : mixed;
+	}
+
+	/**
+	 * compares the key in scratch with the key of a record
+	 * @param record the record offset
+	 * @param length the encoded length of the key in scratch
+	 * @return true if the bytes are the same
+	 */
+
+	private boolean keyEquals(long record, int length) {
+		ByteBuffer chunk = chunk(record);
+		int pos = position(record);
+		if (chunk.getInt(pos) != length)
+			return false;
+		pos += HEADER_BYTES;
+		int i = 0;
+		for (; i + 8 <= length; i += 8)
+			if (chunk.getLong(pos + i) != scratch.getLong(i))
+				return false;
+		for (; i < length; i++)
+			if (chunk.get(pos + i) != scratch.get(i))
+				return false;
+		return true;
+	}
+
+	/**
+	 * finds the slot holding the key. The key is left encoded in scratch.
+	 * @param key the key to look for
+	 * @return the slot, or -1 if the key is not in the hash
+	 */
+
+	private int find(K key) {
+		int length = encodeKey(key);
+		int h = hashKey(length);
+		scratchHash = h;
+		int slot = h & mask;
+		for (int dist = 0; ; dist++) {
+			int sh = slotHash(slot);
+			if (sh == 0 || distance(sh, slot) < dist)
+				return -1;
+			if (sh == h && keyEquals(slotRecord(slot), length))
+				return slot;
+			slot = (slot + 1) & mask;
+		}
+	}
+
+	/**
+	 * reserves room for a record at the end of the arena. The last chunk doubles
+	 * until it reaches 2^CHUNK_BITS bytes, then new chunks are added.
+	 * @param length the size of the record
+	 * @return the offset of the record
+	 */
+
+	private long allocate(int length) {
+		int last = arena.length - 1;
+		int pos = position(end);
+		if ((long) pos + length > arena[last].capacity()) {
+			long wanted = Math.min(1L << CHUNK_BITS, Math.max((long) pos + length, 2L * arena[last].capacity()));
+			if ((long) pos + length <= wanted) {
+				ByteBuffer bigger = ByteBuffer.allocateDirect((int) wanted);
+				bigger.put(0, arena[last], 0, pos);
+				arena[last] = bigger;
+			}
+			else {
+				ByteBuffer[] chunks = new ByteBuffer[arena.length + 1];
+				System.arraycopy(arena, 0, chunks, 0, arena.length);
+				chunks[arena.length] = ByteBuffer.allocateDirect(1 << CHUNK_BITS);
+				arena = chunks;
+				end = (long) arena.length - 1 << CHUNK_BITS;
+				pos = 0;
+			}
+		}
+		long record = end;
+		end += length;
+		return record;
+	}
+
+	/**
+	 * appends a record for the key in scratch and the value
+	 * @param keyLength encoded length of the key in scratch
+	 * @param value the value to write
+	 * @return the offset of the record
+	 */
+
+	private long writeRecord(int keyLength, V value) {
+		int valueLength = valueCodec.size(value);
+		long record = allocate(HEADER_BYTES + keyLength + valueLength);
+		ByteBuffer chunk = chunk(record);
+		int pos = position(record);
+		chunk.putInt(pos, keyLength);
+		chunk.putInt(pos + 4, valueLength);
+		chunk.putInt(pos + 8, valueLength);
+		chunk.put(pos + HEADER_BYTES, scratch, 0, keyLength);
+		valueCodec.write(chunk, pos + HEADER_BYTES + keyLength, value);
+		return record;
+	}
+
+	/**
+	 * @param record a record offset
+	 * @return the number of arena bytes the record takes
+	 */
+
+	private int recordLength(long record) {
+		ByteBuffer chunk = chunk(record);
+		int pos = position(record);
+		return HEADER_BYTES + chunk.getInt(pos) + chunk.getInt(pos + 8);
+	}
+
+	/**
+	 * Adds the given key/value pair. Duplicate keys are rejected.
+	 * @param key the key to add
+	 * @param value the value associated with the key
+	 * @return true if the key/value are added to the hash
+	 */
+
+	public boolean add(K key, V value) {
+		if (find(key) != -1)
+			return false;
+		if (numElements + 1 > maxLoadFactor * tableSize || numElements + 1 >= tableSize)
+			resize(tableSize * 2);
+		long record = writeRecord(scratchLength, value);
+		insert(scratchHash, record);
+		numElements++;
+		return true;
+	}
+
+	/**
+	 * places an index entry known not to be in the table using Robin Hood probing
+	 * @param h the spread hash of the key
+	 * @param record the record offset
+	 */
+
+	private void insert(int h, long record) {
+		int slot = h & mask;
+		int dist = 0;
+		while (true) {
+			int sh = slotHash(slot);
+			if (sh == 0) {
+				setSlot(slot, h, record);
+				return;
+			}
+			int existing = distance(sh, slot);
+			if (existing < dist) {
+				long r = slotRecord(slot);
+				setSlot(slot, h, record);
+				h = sh;
+				record = r;
+				dist = existing;
+			}
+			slot = (slot + 1) & mask;
+			dist++;
+		}
+	}
+
+	/**
+	 * removes the key from the index and shifts the rest of its probe run back one
+	 * slot. The record is left in the arena as garbage.
+	 * @param key the key to remove
+	 * @return true if the key was found and removed
+	 */
+
+	public boolean remove(K key) {
+		int slot = find(key);
+		if (slot == -1)
+			return false;
+		garbage += recordLength(slotRecord(slot));
+		int next = (slot + 1) & mask;
+		while (slotHash(next) != 0 && distance(slotHash(next), next) != 0) {
+			setSlot(slot, slotHash(next), slotRecord(next));
+			slot = next;
+			next = (next + 1) & mask;
+		}
+		setSlot(slot, 0, 0);
+		numElements--;
+		return true;
+	}
+
+	/**
+	 * Change the value associated with an existing key. The value is written over
+	 * the old one if it fits in the room reserved for it, otherwise a new record is
+	 * appended and the old one becomes garbage.
+	 * @param key the key to change
+	 * @param value the new value to assign to the key
+	 * @return true if the key was found, false if not
+	 */
+
+	public boolean changeValue(K key, V value) {
+		int slot = find(key);
+		if (slot == -1)
+			return false;
+		long record = slotRecord(slot);
+		ByteBuffer chunk = chunk(record);
+		int pos = position(record);
+		int keyLength = chunk.getInt(pos);
+		int valueLength = valueCodec.size(value);
+		if (valueLength <= chunk.getInt(pos + 8)) {
+			chunk.putInt(pos + 4, valueLength);
+			valueCodec.write(chunk, pos + HEADER_BYTES + keyLength, value);
+			return true;
+		}
+		garbage += recordLength(record);
+		setSlot(slot, slotHash(slot), writeRecord(keyLength, value));
+		return true;
+	}
+
+	/**
+	 * @param key the key to look for
+	 * @return true if the key is in the hash
+	 */
+
+	public boolean contains(K key) {
+		return find(key) != -1;
+	}
+
+	/**
+	 * decodes the value of the key's record
+	 * @param key the key to find the value for
+	 * @return the value associated with the key, null if not found
+	 */
+
+	public V getValue(K key) {
+		int slot = find(key);
+		if (slot == -1)
+			return null;
+		long record = slotRecord(slot);
+		ByteBuffer chunk = chunk(record);
+		int pos = position(record);
+		return valueCodec.read(chunk, pos + HEADER_BYTES + chunk.getInt(pos), chunk.getInt(pos + 4));
+	}
+
+	/**
+	 * @return the number of key/value pairs currently stored in the dictionary
+	 */
+
+	public int size() {
+		return numElements;
+	}
+
+	/**
+	 * @return true if there are no entries in the hash
+	 */
+
+	public boolean isEmpty() {
+		return numElements == 0;
+	}
+
+	/**
+	 * empties the index and rewinds the arena, keeping the buffers for reuse
+	 */
+
+	public void makeEmpty() {
+		for (int slot = 0; slot < tableSize; slot++)
+			setSlot(slot, 0, 0);
+		arena = new ByteBuffer[] { arena[0] };
+		end = 0;
+		garbage = 0;
+		numElements = 0;
+	}
+
+	/**
+	 * @return the current load factor of the dictionary (lambda)
+	 */
+
+	public double loadFactor() {
+		return (double) numElements / tableSize;
+	}
+
+	/**
+	 * @return maxLoadFactor
+	 */
+
+	public double getMaxLoadFactor() {
+		return maxLoadFactor;
+	}
+
+	/**
+	 * Set the max load factor at which the index grows
+	 */
+
+	public void setMaxLoadFActor(double loadfactor) {
+		maxLoadFactor = loadfactor;
+	}
+
+	/**
+	 * Rebuilds the index with newSize slots, rounded up to a power of two large
+	 * enough for the current entries with at least one empty slot left for probes
+	 * to stop at, reusing the cached hashes. The arena is
+	 * compacted too if more than half of it is garbage.
+	 * @param newSize the size of the new dictionary
+	 */
+
+	public void resize(int newSize) {
+		if (garbage * 2 > usedBytes())
+			compact();
+		int size = OpenHash.capacityFor(newSize);
+		while ((numElements > maxLoadFactor * size || numElements >= size) && size < (1 << 30))
+			size <<= 1;
+		ByteBuffer[] oldIndex = index;
+		int oldSize = tableSize;
+		allocateIndex(size);
+		for (int slot = 0; slot < oldSize; slot++) {
+			ByteBuffer chunk = oldIndex[slot >>> INDEX_CHUNK_BITS];
+			int pos = (slot & ((1 << INDEX_CHUNK_BITS) - 1)) * SLOT_BYTES;
+			int h = chunk.getInt(pos);
+			if (h != 0)
+				insert(h, chunk.getLong(pos + 8));
+		}
+	}
+
+	/**
+	 * @return the number of arena bytes written so far, live or not
+	 */
+
+	private long usedBytes() {
+		return (long) (arena.length - 1) * (1L << CHUNK_BITS) + position(end);
+	}
+
+	/**
+	 * Copies every live record into a fresh arena, dropping the garbage, and points
+	 * the index at the copies.
+	 */
+
+	public void compact() {
+		ByteBuffer[] oldArena = arena;
+		arena = new ByteBuffer[] { ByteBuffer.allocateDirect((int) Math.min(1L << CHUNK_BITS, Math.max(1024, usedBytes() - garbage))) };
+		end = 0;
+		garbage = 0;
+		for (int slot = 0; slot < tableSize; slot++) {
+			int h = slotHash(slot);
+			if (h == 0)
+				continue;
+			long record = slotRecord(slot);
+			ByteBuffer from = oldArena[(int) (record >>> CHUNK_BITS)];
+			int pos = position(record);
+			int length = HEADER_BYTES + from.getInt(pos) + from.getInt(pos + 8);
+			long copy = allocate(length);
+			chunk(copy).put(position(copy), from, pos, length);
+			setSlot(slot, h, copy);
+		}
+	}
+
+	/**
+	 * Returns an Iterator of the keys in index order. Each key is decoded from the
+	 * arena as it is returned.
+	 * @return iterator helper method
+	 */
+
+	public Iterator<K> iterator() {
+		return new IteratorHelper();
+	}
+
+	/**
+	 * walks the index, skipping empty slots
+	 * @param slot the next slot to look at
+	 */
+
+	class IteratorHelper implements Iterator<K> {
+		int slot;
+
+		public IteratorHelper() {
+			slot = advance(0);
+		}
+
+		private int advance(int from) {
+			while (from < tableSize && slotHash(from) == 0)
+				from++;
+			return from;
+		}
+
+		public boolean hasNext() {
+			return slot < tableSize;
+		}
+
+		public K next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			long record = slotRecord(slot);
+			ByteBuffer chunk = chunk(record);
+			int pos = position(record);
+			K key = keyCodec.read(chunk, pos + HEADER_BYTES, chunk.getInt(pos));
+			slot = advance(slot + 1);
+			return key;
+		}
+	}
+}
@@ -0,0 +1,382 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An open addressing implementation of the HashI interface. Keys, values and
+ * cached hash codes are kept in flat parallel arrays instead of a Linked List
+ * per bucket, so an entry costs no extra objects and a lookup scans neighboring
+ * array slots. Collisions are resolved with Robin Hood linear probing and
+ * removal uses backward shift deletion, so no tombstones are ever left behind.
+ *
+ * @param <K> The key for entries in the hash
+ * @param <V> The value for entries in the hash
+ */
+
+public class OpenHash<K, V> implements HashI<K, V> {
+
+	/**
+	 * @param hashes cached hash of the key in each slot, 0 when the slot is empty
+	 * @param keys key stored in each slot
+	 * @param values value stored in each slot
+	 * @param tableSize number of slots, always a power of two
+	 * @param mask tableSize - 1, used in place of the modulo
+	 * @param numElements current number of elements in the hash
+	 * @param maxLoadFactor max load the hash can reach before automatically growing
+	 */
+
+	int[] hashes;
+	Object[] keys;
+	Object[] values;
+	int tableSize;
+	int mask;
+	int numElements;
+	double maxLoadFactor;
+
+	/**
+	 * creates the slot arrays, rounding tableSize up to the next power of two
+	 * @param tableSize requested initial size of the table
+	 */
+
+	public OpenHash(int tableSize) {
+		maxLoadFactor = 0.75;
+		numElements = 0;
+		allocate(capacityFor(tableSize));
+	}
+
+	/**
+	 * allocates fresh slot arrays of the given power of two size
+	 * @param size new number of slots
+	 */
+
+	private void allocate(int size) {
+		tableSize = size;
+		mask = size - 1;
+		hashes = new int[size];
+		keys = new Object[size];
+		values = new Object[size];
+	}
+
+	/**
+	 * rounds a requested size up to a power of two, with a minimum of 2
+	 * @param size requested size
+	 * @return the power of two capacity
+	 */
+
+	static int capacityFor(int size) {
+		if (size <= 2)
+			return 2;
+		if (size >= (1 << 30))
+			return 1 << 30;
+		return Integer.highestOneBit(size - 1) << 1;
+	}
+
+	/**
+	 * mixes the bits of the key's hashCode so that weak hash codes still spread
+	 * over the low bits used by the mask. The result is never 0, since 0 marks an
+	 * empty slot.
+	 * @param key the key to hash
+	 * @return the spread hash
+	 */
+
+	static int hash(Object key) {
+		int h = key.hashCode();
+		h ^= (h >>> 16);
+		h *= 0x85EBCA6B;
+		h ^= (h >>> 13);
+		return (h == 0) ? 1 : h;
+	}
+
+	/**
+	 * how far the entry in a slot sits from the slot its hash wants
+	 * @param hash the cached hash of the entry
+	 * @param slot the slot the entry is in
+	 * @return the probe distance
+	 */
+
+	private int distance(int hash, int slot) {
+		return (slot - (hash & mask)) & mask;
+	}
+
+	/**
+	 * finds the slot holding the key
+	 * @param key the key to look for
+	 * @return the slot, or -1 if the key is not in the hash
+	 */
+
+	private int find(K key) {
+		int h = hash(key);
+		int slot = h & mask;
+		for (int dist = 0; ; dist++) {
+			int sh = hashes[slot];
+			if (sh == 0 || distance(sh, slot) < dist)
+				return -1;
+			if (sh == h && ((Comparable<K>)keys[slot]).compareTo(key) == 0)
+				return slot;
+			slot = (slot + 1) & mask;
+		}
+	}
+
+	/**
+	 * grows the table if it is over the max load factor, then places the entry
+	 * using Robin Hood probing. Duplicate keys are rejected.
+	 * @param key the key to add
+	 * @param value the value associated with the key
+	 * @return true if the key/value are added to the hash
+	 */
+
+	public boolean add(K key, V value) {
+		if (find(key) != -1)
+			return false;
+		if (numElements + 1 > maxLoadFactor * tableSize || numElements + 1 >= tableSize)
+			resize(tableSize * 2);
+		insert(hash(key), key, value);
+		numElements++;
+		return true;
+	}
+
+	/**
+	 * Adds a batch of key/value pairs. The table is grown once for the whole batch
+	 * up front, so the add calls that follow never have to resize it.
+	 * @param keys the keys to add
+	 * @param values the values, values[i] goes with keys[i]
+	 * @return the number of pairs that were added
+	 */
+
+	public int addAll(K[] keys, V[] values) {
+		int n = keys.length;
+		if (numElements + n > maxLoadFactor * tableSize || numElements + n >= tableSize)
+			resize((int) Math.min(1 << 30, (long) ((numElements + n) / maxLoadFactor) + 1));
+		int added = 0;
+		for (int i = 0; i < n; i++)
+			if (add(keys[i], values[i]))
+				added++;
+		return added;
+	}
+
+	/**
+	 * places an entry known not to be in the table. Whenever the entry being placed
+	 * is further from home than the one in the slot, the two swap and the displaced
+	 * entry continues probing.
+	 * @param h the spread hash of the key
+	 * @param key the key to place
+	 * @param value the value to place
+	 */
+
+	private void insert(int h, Object key, Object value) {
+		int slot = h & mask;
+		int dist = 0;
+		while (true) {
+			int sh = hashes[slot];
+			if (sh == 0) {
+				hashes[slot] = h;
+				keys[slot] = key;
+				values[slot] = value;
+				return;
+			}
+			int existing = distance(sh, slot);
+			if (existing < dist) {
+				Object k = keys[slot];
+				Object v = values[slot];
+				hashes[slot] = h;
+				keys[slot] = key;
+				values[slot] = value;
+				h = sh;
+				key = k;
+				value = v;
+				dist = existing;
+			}
+			slot = (slot + 1) & mask;
+			dist++;
+		}
+	}
+
+	/**
+	 * removes the key, then shifts the following entries of the probe run back one
+	 * slot until an empty slot or an entry already at home is reached
+	 * @param key the key to remove
+	 * @return true if the key was found and removed
+	 */
+
+	public boolean remove(K key) {
+		int slot = find(key);
+		if (slot == -1)
+			return false;
+		int next = (slot + 1) & mask;
+		while (hashes[next] != 0 && distance(hashes[next], next) != 0) {
+			hashes[slot] = hashes[next];
+			keys[slot] = keys[next];
+			values[slot] = values[next];
+			slot = next;
+			next = (next + 1) & mask;
+		}
+		hashes[slot] = 0;
+		keys[slot] = null;
+		values[slot] = null;
+		numElements--;
+		return true;
+	}
+
+	/**
+	 * Change the value associated with an existing key.
+	 * @param key the key to change
+	 * @param value the new value to assign to the key
+	 * @return true if the key was found, false if not
+	 */
+
+	public boolean changeValue(K key, V value) {
+		int slot = find(key);
+		if (slot == -1)
+			return false;
+		values[slot] = value;
+		return true;
+	}
+
+	/**
+	 * Test whether the hash has the entry associated with the key.
+	 * @param key the key to look for
+	 * @return true if the key is in the hash
+	 */
+
+	public boolean contains(K key) {
+		return find(key) != -1;
+	}
+
+	/**
+	 * @param key the key to find the value for
+	 * @return the value associated with the key, null if not found
+	 */
+
+	public V getValue(K key) {
+		int slot = find(key);
+		if (slot == -1)
+			return null;
+		return (V) values[slot];
+	}
+
+	/**
+	 * @return the number of key/value pairs currently stored in the dictionary
+	 */
+
+	public int size() {
+		return numElements;
+	}
+
+	/**
+	 * @return true if there are no entries in the hash
+	 */
+
+	public boolean isEmpty() {
+		return numElements == 0;
+	}
+
+	/**
+	 * clears every slot, keeping the current table size
+	 */
+
+	public void makeEmpty() {
+		Arrays.fill(hashes, 0);
+		Arrays.fill(keys, null);
+		Arrays.fill(values, null);
+		numElements = 0;
+	}
+
+	/**
+	 * @return the current load factor of the dictionary (lambda)
+	 */
+
+	public double loadFactor() {
+		return (double) numElements / tableSize;
+	}
+
+	/**
+	 * @return maxLoadFactor
+	 */
+
+	public double getMaxLoadFactor() {
+		return maxLoadFactor;
+	}
+
+	/**
+	 * Set the max load factor at which the table grows
+	 */
+
+	public void setMaxLoadFActor(double loadfactor) {
+		maxLoadFactor = loadfactor;
+	}
+
+	/**
+	 * moves every entry into new slot arrays. The cached hashes are reused, so no
+	 * hashCode is called while resizing. The size is rounded up to a power of two
+	 * large enough to hold the current entries and still leave an empty slot, since
+	 * probing relies on reaching one. This holds even with a max load factor of 1 or more.
+	 * @param newSize the size of the new dictionary
+	 */
+
+	public void resize(int newSize) {
+		int size = capacityFor(newSize);
+		while ((numElements > maxLoadFactor * size || numElements >= size) && size < (1 << 30))
+			size <<= 1;
+		int[] oldHashes = hashes;
+		Object[] oldKeys = keys;
+		Object[] oldValues = values;
+		allocate(size);
+		for (int i = 0; i < oldHashes.length; i++)
+			if (oldHashes[i] != 0)
+				insert(oldHashes[i], oldKeys[i], oldValues[i]);
+	}
+
+	/**
+	 * Returns an Iterator of the keys in slot order. Keys are read straight from
+	 * the table, so nothing is copied.
+	 * @return iterator helper method
+	 */
+
+	public Iterator<K> iterator() {
+		return new IteratorHelper();
+	}
+
+	/**
+	 * walks the slot array, skipping empty slots
+	 * @param slot the next slot to look at
+	 */
+
+	class IteratorHelper implements Iterator<K> {
+		int slot;
+
+		public IteratorHelper() {
+			slot = advance(0);
+		}
+
+		/**
+		 * @param from slot to start looking at
+		 * @return the first used slot at or after from, or tableSize if none
+		 */
+
+		private int advance(int from) {
+			while (from < tableSize && hashes[from] == 0)
+				from++;
+			return from;
+		}
+
+		/**
+		 * @return true if there is another key in the table
+		 */
+
+		public boolean hasNext() {
+			return slot < tableSize;
+		}
+
+		/**
+		 * @return next key in the table
+		 */
+
+		public K next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			K key = (K) keys[slot];
+			slot = advance(slot + 1);
+			return key;
+		}
+	}
+}
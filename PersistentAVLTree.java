@@ -0,0 +1,389 @@
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A persistent AVL tree implementing the AVLTreeI interface. Nodes are never
+ * changed once built: adding or removing a key copies only the nodes on the path
+ * from the root to the key, and every other subtree is shared with the old
+ * version. Taking a snapshot is just keeping a reference to the current root.
+ *
+ * with and without return a new tree and leave this one alone. add and remove
+ * swap the new root into this tree with a compare and set, retrying if another
+ * thread got there first, so writers never lock. Readers and iterators work on
+ * whichever root they saw, so they never see a half finished change.
+ *
+ * @param <K> The key for entries in the tree
+ * @param <V> The value for entries in the tree
+ */
+
+public class PersistentAVLTree<K,V> implements AVLTreeI<K, V> {
+
+	/**
+	 * an immutable node. height and size describe the subtree it roots.
+	 */
+
+	static final class Node<K,V> {
+		final K key;
+		final V value;
+		final Node<K,V> leftChild, rightChild;
+		final int height, size;
+
+		Node (K key, V value, Node<K,V> leftChild, Node<K,V> rightChild) {
+			this.key = key;
+			this.value = value;
+			this.leftChild = leftChild;
+			this.rightChild = rightChild;
+			height = Math.max(heightOf(leftChild), heightOf(rightChild)) + 1;
+			size = sizeOf(leftChild) + sizeOf(rightChild) + 1;
+		}
+	}
+
+	/**
+	 * @param root the current root, null when the tree is empty
+	 */
+
+	private final AtomicReference<Node<K,V>> root;
+
+	/**
+	 * creates an empty tree
+	 */
+
+	public PersistentAVLTree() {
+		this(null);
+	}
+
+	/**
+	 * creates a tree sharing an existing root
+	 * @param root the root
+	 */
+
+	private PersistentAVLTree(Node<K,V> root) {
+		this.root = new AtomicReference<Node<K,V>>(root);
+	}
+
+	/**
+	 * @param node a node or null
+	 * @return the height of the node's subtree, 0 for null
+	 */
+
+	static int heightOf (Node<?,?> node) {
+		return (node == null) ? 0 : node.height;
+	}
+
+	/**
+	 * @param node a node or null
+	 * @return the number of nodes in the node's subtree, 0 for null
+	 */
+
+	static int sizeOf (Node<?,?> node) {
+		return (node == null) ? 0 : node.size;
+	}
+
+	/**
+	 * Returns a snapshot of the tree in O(1). Later changes to either tree do not
+	 * affect the other.
+	 * @return a tree sharing the current root
+	 */
+
+	public PersistentAVLTree<K,V> snapshot() {
+		return new PersistentAVLTree<K,V>(root.get());
+	}
+
+	/**
+	 * @param key the key to add
+	 * @param value the value associated with the key
+	 * @return a new tree that also has the key, or a snapshot of this one if the key is already there
+	 */
+
+	public PersistentAVLTree<K,V> with(K key, V value) {
+		return new PersistentAVLTree<K,V>(insert(root.get(), key, value));
+	}
+
+	/**
+	 * @param key the key to remove
+	 * @return a new tree without the key
+	 */
+
+	public PersistentAVLTree<K,V> without(K key) {
+		return new PersistentAVLTree<K,V>(delete(root.get(), key));
+	}
+
+	/**
+	 * Adds the key by building a new path and swapping in the new root. Duplicate
+	 * keys are ignored.
+	 * @param key the key to add
+	 * @param value the value associated with the key
+	 */
+
+	public void add(K key, V value) {
+		while (true) {
+			Node<K,V> old = root.get();
+			Node<K,V> updated = insert(old, key, value);
+			if (updated == old || root.compareAndSet(old, updated))
+				return;
+		}
+	}
+
+	/**
+	 * Removes the key by building a new path and swapping in the new root.
+	 * @param key the key to remove
+	 * @return true if the key was found and removed
+	 */
+
+	public boolean remove(K key) {
+		while (true) {
+			Node<K,V> old = root.get();
+			Node<K,V> updated = delete(old, key);
+			if (updated == old)
+				return false;
+			if (root.compareAndSet(old, updated))
+				return true;
+		}
+	}
+
+	/**
+	 * @param n root of the subtree
+	 * @param key the key to add
+	 * @param value the value associated with the key
+	 * @return the root of the new subtree, n itself if the key is already there
+	 */
+
+	private Node<K,V> insert (Node<K,V> n, K key, V value) {
+		if (n == null)
+			return new Node<K,V>(key, value, null, null);
+		int cmp = ((Comparable<K>) key).compareTo(n.key);
+		if (cmp == 0)
+			return n;
+		if (cmp < 0) {
+			Node<K,V> left = insert(n.leftChild, key, value);
+			if (left == n.leftChild)
+				return n;
+			return balance(n.key, n.value, left, n.rightChild);
+		}
+		Node<K,V> right = insert(n.rightChild, key, value);
+		if (right == n.rightChild)
+			return n;
+		return balance(n.key, n.value, n.leftChild, right);
+	}
+
+	/**
+	 * @param n root of the subtree
+	 * @param key the key to remove
+	 * @return the root of the new subtree, n itself if the key is not there
+	 */
+
+	private Node<K,V> delete (Node<K,V> n, K key) {
+		if (n == null)
+			return null;
+		int cmp = ((Comparable<K>) key).compareTo(n.key);
+		if (cmp < 0) {
+			Node<K,V> left = delete(n.leftChild, key);
+			if (left == n.leftChild)
+				return n;
+			return balance(n.key, n.value, left, n.rightChild);
+		}
+		if (cmp > 0) {
+			Node<K,V> right = delete(n.rightChild, key);
+			if (right == n.rightChild)
+				return n;
+			return balance(n.key, n.value, n.leftChild, right);
+		}
+		if (n.leftChild == null)
+			return n.rightChild;
+		if (n.rightChild == null)
+			return n.leftChild;
+		Node<K,V> successor = n.rightChild;
+		while (successor.leftChild != null)
+			successor = successor.leftChild;
+		return balance(successor.key, successor.value, n.leftChild, deleteMin(n.rightChild));
+	}
+
+	/**
+	 * @param n root of a non empty subtree
+	 * @return the root of the subtree without its smallest key
+	 */
+
+	private Node<K,V> deleteMin (Node<K,V> n) {
+		if (n.leftChild == null)
+			return n.rightChild;
+		return balance(n.key, n.value, deleteMin(n.leftChild), n.rightChild);
+	}
+
+	/**
+	 * Builds a node from its parts, doing a single or double rotation if the
+	 * children's heights differ by more than one.
+	 * @param key the node's key
+	 * @param value the node's value
+	 * @param left the left subtree
+	 * @param right the right subtree
+	 * @return the root of the balanced subtree
+	 */
+
+	private Node<K,V> balance (K key, V value, Node<K,V> left, Node<K,V> right) {
+		int diff = heightOf(left) - heightOf(right);
+		if (diff > 1) {
+			if (heightOf(left.leftChild) >= heightOf(left.rightChild))
+				return new Node<K,V>(left.key, left.value, left.leftChild,
+						new Node<K,V>(key, value, left.rightChild, right));
+			Node<K,V> mid = left.rightChild;
+			return new Node<K,V>(mid.key, mid.value,
+					new Node<K,V>(left.key, left.value, left.leftChild, mid.leftChild),
+					new Node<K,V>(key, value, mid.rightChild, right));
+		}
+		if (diff < -1) {
+			if (heightOf(right.rightChild) >= heightOf(right.leftChild))
+				return new Node<K,V>(right.key, right.value,
+						new Node<K,V>(key, value, left, right.leftChild), right.rightChild);
+			Node<K,V> mid = right.leftChild;
+			return new Node<K,V>(mid.key, mid.value,
+					new Node<K,V>(key, value, left, mid.leftChild),
+					new Node<K,V>(right.key, right.value, mid.rightChild, right.rightChild));
+		}
+		return new Node<K,V>(key, value, left, right);
+	}
+
+	/**
+	 * @param key the key to look for
+	 * @return the node holding the key in the current root, null if not found
+	 */
+
+	private Node<K,V> find (K key) {
+		Comparable<K> k = (Comparable<K>) key;
+		Node<K,V> n = root.get();
+		while (n != null) {
+			int cmp = k.compareTo(n.key);
+			if (cmp == 0)
+				return n;
+			n = (cmp < 0) ? n.leftChild : n.rightChild;
+		}
+		return null;
+	}
+
+	/**
+	 * Tests whether the AVLTree contains the key
+	 * @param key the key to look for
+	 * @return whether the key is found
+	 */
+
+	public boolean contains(K key) {
+		return find(key) != null;
+	}
+
+	/**
+	 * Get the value associated with a given key
+	 * @param key the key to get the value for
+	 * @return the current value, null if the key is not found
+	 */
+
+	public V getValue(K key) {
+		Node<K,V> n = find(key);
+		if (n == null)
+			return null;
+		return n.value;
+	}
+
+	/**
+	 * @return current size of tree, read from the root
+	 */
+
+	public int size() {
+		return sizeOf(root.get());
+	}
+
+	/**
+	 * @return true if tree is empty, false if not
+	 */
+
+	public boolean isEmpty() {
+		return root.get() == null;
+	}
+
+	/**
+	 * @return height of tree, read from the root
+	 */
+
+	public int height() {
+		Node<K,V> r = root.get();
+		if (r == null)
+			return 0;
+		return r.height - 1;
+	}
+
+	/**
+	 * Iterates in order over the tree as it was when this is called. Changes made
+	 * afterwards are not seen, and never cause the iterator to fail.
+	 * @return iterator over the keys in ascending order
+	 */
+
+	public Iterator<K> iterator() {
+		return new IteratorHelper(root.get());
+	}
+
+	/**
+	 * in order traversal with an explicit stack of the nodes still to visit
+	 * @param stack the path of nodes whose keys have not been returned yet
+	 */
+
+	class IteratorHelper implements Iterator<K> {
+		ArrayDeque<Node<K,V>> stack;
+
+		public IteratorHelper(Node<K,V> start) {
+			stack = new ArrayDeque<Node<K,V>>();
+			pushLeft(start);
+		}
+
+		/**
+		 * pushes n and its chain of left children
+		 * @param n the node to start at
+		 */
+
+		private void pushLeft (Node<K,V> n) {
+			for (; n != null; n = n.leftChild)
+				stack.push(n);
+		}
+
+		public boolean hasNext() {
+			return !stack.isEmpty();
+		}
+
+		public K next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			Node<K,V> n = stack.pop();
+			pushLeft(n.rightChild);
+			return n.key;
+		}
+	}
+
+	/**
+	 * calls print method and sends root as parameter
+	 */
+
+	public void print() {
+		Node<K,V> r = root.get();
+		print(r, r, 0);
+	}
+
+	/**
+	 * Recursively prints out the tree in order, with one period per level below the root
+	 * @param n the node to print
+	 * @param top the root the print started from
+	 * @param depth number of levels below the root n is at
+	 */
+
+	private void print (Node<K,V> n, Node<K,V> top, int depth) {
+		if (n == null)
+			return;
+		print(n.leftChild, top, depth + 1);
+		if (n == top)
+			System.out.println("Key: " + n.key + " Value: " + n.value + " (root)");
+		else {
+			for (int i = 0; i < depth; i++)
+				System.out.print(".");
+			System.out.println("Key: " + n.key + " Value: " + n.value);
+		}
+		print(n.rightChild, top, depth + 1);
+	}
+}
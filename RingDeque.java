@@ -0,0 +1,236 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A double ended queue implementing the ListI interface on a circular array. The
+ * elements sit next to each other in one array, starting at head and wrapping
+ * around the end, so adding and removing at either end just moves an index and
+ * never allocates a node. The array is a power of two in size, so wrapping is a mask.
+ *
+ * A growable deque doubles its array when it fills up. A fixed capacity deque never
+ * grows: isFull returns true once it holds capacity objects, and adding to a full
+ * deque throws IllegalStateException.
+ *
+ * @param <E> generics data type
+ */
+
+public class RingDeque<E> implements ListI<E> {
+
+	/**
+	 * @param elements the circular array, with null in every unused slot
+	 * @param mask elements.length - 1
+	 * @param head index of the first object
+	 * @param currentSize number of objects in the deque
+	 * @param capacity most objects a fixed capacity deque can hold, -1 if it grows
+	 */
+
+	private Object[] elements;
+	private int mask;
+	private int head;
+	private int currentSize;
+	private final int capacity;
+
+	/**
+	 * creates an empty growable deque with room for 16 objects
+	 */
+
+	public RingDeque() {
+		this(16, false);
+	}
+
+	/**
+	 * creates an empty deque
+	 * @param capacity number of objects to make room for, and the limit if fixed
+	 * @param fixed true to never grow past capacity
+	 */
+
+	public RingDeque(int capacity, boolean fixed) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("capacity must be positive");
+		this.capacity = fixed ? capacity : -1;
+		elements = new Object[OpenHash.capacityFor(capacity)];
+		mask = elements.length - 1;
+		head = 0;
+		currentSize = 0;
+	}
+
+	/**
+	 * makes room for one more object, doubling the array if it is full
+	 * @throws IllegalStateException if a fixed capacity deque is full
+	 */
+
+	private void ensureRoom() {
+		if (isFull())
+			throw new IllegalStateException("deque is full");
+		if (currentSize < elements.length)
+			return;
+		Object[] bigger = new Object[elements.length * 2];
+		int front = elements.length - head;
+		System.arraycopy(elements, head, bigger, 0, front);
+		System.arraycopy(elements, 0, bigger, front, head);
+		elements = bigger;
+		mask = bigger.length - 1;
+		head = 0;
+	}
+
+	/**
+	 * Adds an object to the beginning of the deque, in the slot before head.
+	 * @param obj the object to be added to the deque
+	 * @throws IllegalStateException if a fixed capacity deque is full
+	 */
+
+	public void addFirst(E obj) {
+		ensureRoom();
+		head = (head - 1) & mask;
+		elements[head] = obj;
+		currentSize++;
+	}
+
+	/**
+	 * Adds an object to the end of the deque, in the slot after the last object.
+	 * @param obj the object to be added to the deque
+	 * @throws IllegalStateException if a fixed capacity deque is full
+	 */
+
+	public void addLast(E obj) {
+		ensureRoom();
+		elements[(head + currentSize) & mask] = obj;
+		currentSize++;
+	}
+
+	/**
+	 * Removes the first Object in the deque and returns it. Returns null if the deque is empty.
+	 * @return the first object
+	 */
+
+	public E removeFirst() {
+		if (currentSize == 0)
+			return null;
+		E obj = (E) elements[head];
+		elements[head] = null;
+		head = (head + 1) & mask;
+		currentSize--;
+		return obj;
+	}
+
+	/**
+	 * Removes the last Object in the deque and returns it. Returns null if the deque is empty.
+	 * @return the last object
+	 */
+
+	public E removeLast() {
+		if (currentSize == 0)
+			return null;
+		int last = (head + currentSize - 1) & mask;
+		E obj = (E) elements[last];
+		elements[last] = null;
+		currentSize--;
+		return obj;
+	}
+
+	/**
+	 * Returns the first Object in the deque, but does not remove it. Returns null if the deque is empty.
+	 * @return the first object
+	 */
+
+	public E peekFirst() {
+		return (E) elements[head];
+	}
+
+	/**
+	 * Returns the last Object in the deque, but does not remove it. Returns null if the deque is empty.
+	 * @return the last object
+	 */
+
+	public E peekLast() {
+		return (E) elements[(head + currentSize - 1) & mask];
+	}
+
+	/**
+	 * Returns the deque to an empty state, clearing only the slots in use.
+	 */
+
+	public void makeEmpty() {
+		int end = head + currentSize;
+		if (end <= elements.length)
+			Arrays.fill(elements, head, end, null);
+		else {
+			Arrays.fill(elements, head, elements.length, null);
+			Arrays.fill(elements, 0, end & mask, null);
+		}
+		head = 0;
+		currentSize = 0;
+	}
+
+	/**
+	 * Test whether the deque is empty.
+	 */
+
+	public boolean isEmpty() {
+		return currentSize == 0;
+	}
+
+	/**
+	 * Test whether the deque is full. Only a fixed capacity deque can be full.
+	 */
+
+	public boolean isFull() {
+		return currentSize == capacity;
+	}
+
+	/**
+	 * Returns the number of Objects currently in the deque.
+	 * @return current number of objects in the deque
+	 */
+
+	public int size() {
+		return currentSize;
+	}
+
+	/**
+	 * Test whether the deque contains an object, using the object's compareTo method
+	 * to determine whether two objects are the same.
+	 * @param obj the object to look for
+	 * @return true if the object is found
+	 */
+
+	public boolean contains(E obj) {
+		for (int i = 0; i < currentSize; i++)
+			if (((Comparable<E>) elements[(head + i) & mask]).compareTo(obj) == 0)
+				return true;
+		return false;
+	}
+
+	/**
+	 * Returns an Iterator of the values in the deque from first to last.
+	 * @return iterator helper method
+	 */
+
+	public Iterator<E> iterator() {
+		return new IteratorHelper();
+	}
+
+	/**
+	 * walks the array from head, wrapping around the end
+	 * @param index number of objects returned so far
+	 */
+
+	class IteratorHelper implements Iterator<E> {
+		int index;
+
+		public IteratorHelper() {
+			index = 0;
+		}
+
+		public boolean hasNext() {
+			return index < currentSize;
+		}
+
+		public E next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			return (E) elements[(head + index++) & mask];
+		}
+	}
+}
@@ -0,0 +1,297 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A bounded first in first out queue implementing the ListI interface, for handing
+ * objects from exactly one producer thread to exactly one consumer thread without
+ * locks. Only the producer may call addLast and offer, and only the consumer may
+ * call removeFirst, peekFirst, peekLast, makeEmpty, contains and iterator.
+ *
+ * The objects sit in a power of two array indexed by two ever increasing sequence
+ * counters: tail, written only by the producer, and head, written only by the
+ * consumer. Each side publishes its counter with a release store and reads the other
+ * side's with an acquire load, and also keeps a cached copy of the other side's
+ * counter so it only reads it again when the ring looks full or empty. Each counter
+ * and its cache are padded onto their own cache line, so the two threads do not
+ * keep stealing the same line from each other.
+ *
+ * The ring only works at its two ends in one direction, so addFirst and removeLast
+ * throw UnsupportedOperationException. null cannot be added, since
+ * removeFirst returns null when the ring is empty.
+ *
+ * @param <E> generics data type
+ */
+
+public class SpscRing<E> implements ListI<E> {
+
+	/**
+	 * padding that keeps a Sequence's fields off the cache line of whatever sits before it
+	 */
+
+	static class LeftPad {
+		long p01, p02, p03, p04, p05, p06, p07;
+	}
+
+	/**
+	 * @param value the counter, written only by its owning thread
+	 * @param cache the owner's last read of the other side's counter
+	 */
+
+	static class Fields extends LeftPad {
+		volatile long value;
+		long cache;
+	}
+
+	/**
+	 * a sequence counter padded on both sides to fill its own cache line. Fields
+	 * of a superclass are laid out before those of a subclass, which is what keeps
+	 * the padding on the right sides.
+	 */
+
+	static final class Sequence extends Fields {
+		long p11, p12, p13, p14, p15, p16, p17;
+
+		private static final VarHandle VALUE;
+
+		static {
+			try {
+				VALUE = MethodHandles.lookup().findVarHandle(Fields.class, "value", long.class);
+			}
+			catch (ReflectiveOperationException e) {
+				throw new ExceptionInInitializerError(e);
+			}
+		}
+
+		/**
+		 * @return the counter, with acquire ordering
+		 */
+
+		long getAcquire() {
+			return (long) VALUE.getAcquire(this);
+		}
+
+		/**
+		 * publishes the counter with release ordering, which is cheaper than a volatile write
+		 * @param v the new value
+		 */
+
+		void setRelease(long v) {
+			VALUE.setRelease(this, v);
+		}
+	}
+
+	/**
+	 * @param buffer the ring, slot i holds the object with sequence number i modulo its length
+	 * @param mask buffer.length - 1
+	 * @param capacity most objects the ring can hold
+	 * @param head sequence of the next object to remove, owned by the consumer
+	 * @param tail sequence of the next object to add, owned by the producer
+	 */
+
+	private final Object[] buffer;
+	private final int mask;
+	private final int capacity;
+	private final Sequence head;
+	private final Sequence tail;
+
+	/**
+	 * creates an empty ring
+	 * @param capacity most objects the ring can hold
+	 */
+
+	public SpscRing(int capacity) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("capacity must be positive");
+		this.capacity = capacity;
+		buffer = new Object[OpenHash.capacityFor(capacity)];
+		mask = buffer.length - 1;
+		head = new Sequence();
+		tail = new Sequence();
+	}
+
+	/**
+	 * Adds an object to the end of the ring if there is room. Producer only.
+	 * @param obj the object to be added, not null
+	 * @return true if it was added, false if the ring is full
+	 */
+
+	public boolean offer(E obj) {
+		if (obj == null)
+			throw new NullPointerException();
+		long t = tail.value;
+		if (t - tail.cache >= capacity) {
+			tail.cache = head.getAcquire();
+			if (t - tail.cache >= capacity)
+				return false;
+		}
+		buffer[(int) t & mask] = obj;
+		tail.setRelease(t + 1);
+		return true;
+	}
+
+	/**
+	 * Not supported, objects can only be added at the end.
+	 * @throws UnsupportedOperationException always
+	 */
+
+	public void addFirst(E obj) {
+		throw new UnsupportedOperationException("SpscRing only adds at the end");
+	}
+
+	/**
+	 * Adds an object to the end of the ring. Producer only.
+	 * @param obj the object to be added, not null
+	 * @throws IllegalStateException if the ring is full
+	 */
+
+	public void addLast(E obj) {
+		if (!offer(obj))
+			throw new IllegalStateException("ring is full");
+	}
+
+	/**
+	 * Removes the first Object in the ring and returns it. Returns null if the ring
+	 * is empty. Consumer only.
+	 * @return the first object
+	 */
+
+	public E removeFirst() {
+		long h = head.value;
+		if (h >= head.cache) {
+			head.cache = tail.getAcquire();
+			if (h >= head.cache)
+				return null;
+		}
+		int slot = (int) h & mask;
+		E obj = (E) buffer[slot];
+		buffer[slot] = null;
+		head.setRelease(h + 1);
+		return obj;
+	}
+
+	/**
+	 * Not supported, objects can only be removed from the front.
+	 * @throws UnsupportedOperationException always
+	 */
+
+	public E removeLast() {
+		throw new UnsupportedOperationException("SpscRing only removes from the front");
+	}
+
+	/**
+	 * Returns the first Object in the ring, but does not remove it. Returns null if
+	 * the ring is empty. Consumer only.
+	 * @return the first object
+	 */
+
+	public E peekFirst() {
+		long h = head.value;
+		if (h >= tail.getAcquire())
+			return null;
+		return (E) buffer[(int) h & mask];
+	}
+
+	/**
+	 * Returns the last Object published to the ring, but does not remove it. Returns
+	 * null if the ring is empty. Consumer only: the slot before tail was published
+	 * with a release store, and the producer cannot reuse it until the consumer
+	 * moves head past it.
+	 * @return the last object
+	 */
+
+	public E peekLast() {
+		long t = tail.getAcquire();
+		if (head.value >= t)
+			return null;
+		return (E) buffer[(int) (t - 1) & mask];
+	}
+
+	/**
+	 * Returns the ring to an empty state by removing everything the producer has
+	 * published so far. Consumer only.
+	 */
+
+	public void makeEmpty() {
+		while (removeFirst() != null);
+	}
+
+	/**
+	 * Test whether the ring is empty.
+	 */
+
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * Test whether the ring is full.
+	 */
+
+	public boolean isFull() {
+		return size() >= capacity;
+	}
+
+	/**
+	 * Returns the number of Objects currently in the ring, which may be stale if the
+	 * other thread is adding or removing.
+	 * @return current number of objects in the ring
+	 */
+
+	public int size() {
+		long h = head.getAcquire();
+		long t = tail.getAcquire();
+		return (int) Math.max(Math.min(t - h, capacity), 0);
+	}
+
+	/**
+	 * Test whether the ring contains an object, using the object's compareTo method
+	 * to determine whether two objects are the same. Consumer only.
+	 * @param obj the object to look for
+	 * @return true if the object is found
+	 */
+
+	public boolean contains(E obj) {
+		for (E item : this)
+			if (((Comparable<E>) item).compareTo(obj) == 0)
+				return true;
+		return false;
+	}
+
+	/**
+	 * Returns an Iterator of the objects published when it is created, from first to
+	 * last, without removing them. Consumer only.
+	 * @return iterator helper method
+	 */
+
+	public Iterator<E> iterator() {
+		return new IteratorHelper();
+	}
+
+	/**
+	 * walks the sequence numbers from head up to the tail seen at creation
+	 * @param next sequence number of the next object
+	 * @param end the tail when the iterator was created
+	 */
+
+	class IteratorHelper implements Iterator<E> {
+		long next;
+		long end;
+
+		public IteratorHelper() {
+			next = head.value;
+			end = tail.getAcquire();
+		}
+
+		public boolean hasNext() {
+			return next < end;
+		}
+
+		public E next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			return (E) buffer[(int) next++ & mask];
+		}
+	}
+}
@@ -0,0 +1,336 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An unrolled linked list implementing the ListI interface. Each node holds up to
+ * NODE_CAPACITY objects in a small array instead of just one, so there is one node
+ * header and one pair of links per block of objects rather than per object, and
+ * scans like contains walk arrays instead of hopping from node to node.
+ *
+ * A node's objects sit in items[start] to items[end - 1]. Adding at the front fills
+ * the head node downwards from start and adding at the end fills the tail node
+ * upwards from end, opening a new node once the end node is full. Removing an object
+ * from the middle closes the gap in its node, and a node left less than half full
+ * is merged into its neighbor when they fit in one node together.
+ *
+ * @param <E> generics data type
+ */
+
+public class UnrolledLinkedList<E> implements ListI<E> {
+
+	/**
+	 * most objects a node holds
+	 */
+
+	static final int NODE_CAPACITY = 32;
+
+	/**
+	 * a block of objects, in items[start] to items[end - 1]
+	 */
+
+	static class Node {
+		Object[] items;
+		int start, end;
+		Node next, prev;
+
+		Node (int position) {
+			items = new Object[NODE_CAPACITY];
+			start = end = position;
+		}
+
+		int count() {
+			return end - start;
+		}
+	}
+
+	/**
+	 * @param head first node, null when the list is empty
+	 * @param tail last node, null when the list is empty
+	 * @param currentSize number of objects in the list
+	 */
+
+	private Node head;
+	private Node tail;
+	private int currentSize;
+
+	/**
+	 * Adds an object to the beginning of the list, in the slot before the head
+	 * node's first object. If that node has no room a new head node is linked in,
+	 * and if it has room but none at the front its objects are moved to the back.
+	 * @param obj the object to be added to the list
+	 */
+
+	public void addFirst(E obj) {
+		if (head == null || head.count() == NODE_CAPACITY) {
+			Node node = new Node(NODE_CAPACITY);
+			node.next = head;
+			if (head == null)
+				tail = node;
+			else
+				head.prev = node;
+			head = node;
+		}
+		else if (head.start == 0) {
+			int count = head.count();
+			System.arraycopy(head.items, 0, head.items, NODE_CAPACITY - count, count);
+			clear(head, 0, NODE_CAPACITY - count);
+			head.start = NODE_CAPACITY - count;
+			head.end = NODE_CAPACITY;
+		}
+		head.items[--head.start] = obj;
+		currentSize++;
+	}
+
+	/**
+	 * Adds an object to the end of the list, in the slot after the tail node's last
+	 * object. If that node has no room a new tail node is linked in, and if it has
+	 * room but none at the back its objects are moved to the front.
+	 * @param obj the object to be added to the list
+	 */
+
+	public void addLast(E obj) {
+		if (tail == null || tail.count() == NODE_CAPACITY) {
+			Node node = new Node(0);
+			node.prev = tail;
+			if (tail == null)
+				head = node;
+			else
+				tail.next = node;
+			tail = node;
+		}
+		else if (tail.end == NODE_CAPACITY) {
+			int count = tail.count();
+			System.arraycopy(tail.items, tail.start, tail.items, 0, count);
+			clear(tail, count, NODE_CAPACITY);
+			tail.start = 0;
+			tail.end = count;
+		}
+		tail.items[tail.end++] = obj;
+		currentSize++;
+	}
+
+	/**
+	 * nulls out slots that no longer hold an object
+	 * @param node the node
+	 * @param from first slot to clear
+	 * @param to slot after the last one to clear
+	 */
+
+	private void clear(Node node, int from, int to) {
+		for (int i = from; i < to; i++)
+			node.items[i] = null;
+	}
+
+	/**
+	 * Removes the first Object in the list and returns it. Returns null if the list is empty.
+	 * @return the first object
+	 */
+
+	public E removeFirst() {
+		if (head == null)
+			return null;
+		E obj = (E) head.items[head.start];
+		head.items[head.start++] = null;
+		currentSize--;
+		if (head.count() == 0)
+			unlink(head);
+		return obj;
+	}
+
+	/**
+	 * Removes the last Object in the list and returns it. Returns null if the list is empty.
+	 * @return the last object
+	 */
+
+	public E removeLast() {
+		if (tail == null)
+			return null;
+		E obj = (E) tail.items[--tail.end];
+		tail.items[tail.end] = null;
+		currentSize--;
+		if (tail.count() == 0)
+			unlink(tail);
+		return obj;
+	}
+
+	/**
+	 * Removes the first Object in the list that is the same as obj, using the object's
+	 * compareTo method. The objects after it in its node are shifted down, and the
+	 * node is merged with a neighbor if it ends up less than half full and they fit
+	 * in one node.
+	 * @param obj the object to remove
+	 * @return true if obj was found and removed, false if not
+	 */
+
+	public boolean remove(E obj) {
+		for (Node node = head; node != null; node = node.next) {
+			for (int i = node.start; i < node.end; i++) {
+				if (((Comparable<E>) node.items[i]).compareTo(obj) == 0) {
+					System.arraycopy(node.items, i + 1, node.items, i, node.end - i - 1);
+					node.items[--node.end] = null;
+					currentSize--;
+					if (node.count() == 0)
+						unlink(node);
+					else if (node.count() < NODE_CAPACITY / 2) {
+						if (node.next != null && node.count() + node.next.count() <= NODE_CAPACITY)
+							merge(node, node.next);
+						else if (node.prev != null && node.count() + node.prev.count() <= NODE_CAPACITY)
+							merge(node.prev, node);
+					}
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * moves every object of right into left, then unlinks right
+	 * @param left a node
+	 * @param right the node after left, whose objects fit in left alongside its own
+	 */
+
+	private void merge(Node left, Node right) {
+		int count = left.count();
+		if (left.start + count + right.count() > NODE_CAPACITY) {
+			System.arraycopy(left.items, left.start, left.items, 0, count);
+			clear(left, count, left.end);
+			left.start = 0;
+			left.end = count;
+		}
+		System.arraycopy(right.items, right.start, left.items, left.end, right.count());
+		left.end += right.count();
+		unlink(right);
+	}
+
+	/**
+	 * takes a node out of the chain
+	 * @param node a node of this list
+	 */
+
+	private void unlink(Node node) {
+		if (node.prev == null)
+			head = node.next;
+		else
+			node.prev.next = node.next;
+		if (node.next == null)
+			tail = node.prev;
+		else
+			node.next.prev = node.prev;
+	}
+
+	/**
+	 * Returns the first Object in the list, but does not remove it. Returns null if the list is empty.
+	 * @return the first object
+	 */
+
+	public E peekFirst() {
+		if (head == null)
+			return null;
+		return (E) head.items[head.start];
+	}
+
+	/**
+	 * Returns the last Object in the list, but does not remove it. Returns null if the list is empty.
+	 * @return the last object
+	 */
+
+	public E peekLast() {
+		if (tail == null)
+			return null;
+		return (E) tail.items[tail.end - 1];
+	}
+
+	/**
+	 * Returns the list to an empty state.
+	 */
+
+	public void makeEmpty() {
+		head = tail = null;
+		currentSize = 0;
+	}
+
+	/**
+	 * Test whether the list is empty.
+	 */
+
+	public boolean isEmpty() {
+		return head == null;
+	}
+
+	/**
+	 * Test whether the list is full. Always false, the list grows as needed.
+	 */
+
+	public boolean isFull() {
+		return false;
+	}
+
+	/**
+	 * Returns the number of Objects currently in the list.
+	 * @return current number of objects in the list
+	 */
+
+	public int size() {
+		return currentSize;
+	}
+
+	/**
+	 * Test whether the list contains an object, using the object's compareTo method
+	 * to determine whether two objects are the same. Each node's array is scanned in
+	 * one go before following the link to the next node.
+	 * @param obj the object to look for
+	 * @return true if the object is found
+	 */
+
+	public boolean contains(E obj) {
+		for (Node node = head; node != null; node = node.next) {
+			Object[] items = node.items;
+			for (int i = node.start; i < node.end; i++)
+				if (((Comparable<E>) items[i]).compareTo(obj) == 0)
+					return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns an Iterator of the values in the list, presented in the same order as the list.
+	 * @return iterator helper method
+	 */
+
+	public Iterator<E> iterator() {
+		return new IteratorHelper();
+	}
+
+	/**
+	 * walks each node's array, then follows the link to the next node
+	 * @param node the node being read
+	 * @param index the next slot to read in node
+	 */
+
+	class IteratorHelper implements Iterator<E> {
+		Node node;
+		int index;
+
+		public IteratorHelper() {
+			node = head;
+			index = (node == null) ? 0 : node.start;
+		}
+
+		public boolean hasNext() {
+			return node != null;
+		}
+
+		public E next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			E tmp = (E) node.items[index++];
+			if (index == node.end) {
+				node = node.next;
+				if (node != null)
+					index = node.start;
+			}
+			return tmp;
+		}
+	}
+}